@@ -0,0 +1,46 @@
+package com.javachallenge.challenge;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of the whole challenge catalog. {@code etag} is derived from the content,
+ * so every backend node hands out the same tag for the same catalog. Filtered listings and
+ * encoded first pages are memoized per snapshot and dropped with it.
+ */
+public record CatalogSnapshot(
+    long version,
+    String etag,
+    List<ChallengeDto> challenges,
+    List<ChallengeSummaryDto> summaries,
+    Map<UUID, ChallengeDto> byId,
+    Map<UUID, String> etags,
+    Map<ChallengeFilter, List<ChallengeSummaryDto>> filtered,
+    Map<String, byte[]> encodedPages
+) {
+    /** Catalog order: topic, then creation time, then id. */
+    static final Comparator<ChallengeSummaryDto> ORDER = Comparator.comparing(ChallengeSummaryDto::topicId)
+            .thenComparing(ChallengeSummaryDto::createdAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ChallengeSummaryDto::id);
+
+    static CatalogSnapshot of(long version, String etag, List<ChallengeDto> challenges, Map<UUID, String> etags) {
+        Map<UUID, ChallengeDto> byId = new HashMap<>();
+        for (ChallengeDto dto : challenges) byId.put(dto.id(), dto);
+        List<ChallengeSummaryDto> summaries = challenges.stream().map(ChallengeSummaryDto::from).sorted(ORDER).toList();
+        return new CatalogSnapshot(version, etag, challenges, summaries, Map.copyOf(byId), Map.copyOf(etags),
+                new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    public Optional<ChallengeDto> find(UUID id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public String etag(UUID id) {
+        return etags.get(id);
+    }
+
+    /** Summaries matching {@code filter}, in catalog order; computed once per filter. */
+    public List<ChallengeSummaryDto> list(ChallengeFilter filter) {
+        return filtered.computeIfAbsent(filter, f -> summaries.stream().filter(f::matches).toList());
+    }
+}
@@ -56,6 +56,9 @@ public class Challenge {
     @Column(name = "challenge_type", nullable = false)
     private String challengeType = "refactor";
 
+    @Column(name = "grading_mode", nullable = false)
+    private String gradingMode = "maven";
+
     @Column(name = "created_at", updatable = false)
     private Instant createdAt = Instant.now();
 
@@ -74,6 +77,7 @@ public class Challenge {
     public String getCheckstyleRulesJson() { return checkstyleRulesJson; }
     public boolean isAiGenerated() { return aiGenerated; }
     public String getChallengeType() { return challengeType; }
+    public String getGradingMode() { return gradingMode; }
     public Instant getCreatedAt() { return createdAt; }
 
     // Setters
@@ -90,4 +94,5 @@ public class Challenge {
     public void setCheckstyleRulesJson(String json) { this.checkstyleRulesJson = json; }
     public void setAiGenerated(boolean aiGenerated) { this.aiGenerated = aiGenerated; }
     public void setChallengeType(String challengeType) { this.challengeType = challengeType; }
+    public void setGradingMode(String gradingMode) { this.gradingMode = gradingMode; }
 }
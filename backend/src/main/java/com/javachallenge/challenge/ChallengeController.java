@@ -1,52 +1,133 @@
 package com.javachallenge.challenge;
 
-import com.javachallenge.zip.ZipBundleService;
+import com.javachallenge.zip.BundleCache;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.io.IOException;
-import java.util.List;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/challenges")
 public class ChallengeController {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final ChallengeService challengeService;
-    private final ZipBundleService zipBundleService;
+    private final BundleCache bundleCache;
 
-    public ChallengeController(ChallengeService challengeService, ZipBundleService zipBundleService) {
+    public ChallengeController(ChallengeService challengeService, BundleCache bundleCache) {
         this.challengeService = challengeService;
-        this.zipBundleService = zipBundleService;
+        this.bundleCache = bundleCache;
     }
 
+    /**
+     * Catalog cards filtered by topic, difficulty and type, {@code limit} at a time.
+     * Bodies are gzipped for clients that accept it.
+     */
     @GetMapping
-    public ResponseEntity<List<ChallengeDto>> list(
+    public ResponseEntity<byte[]> list(
             @RequestParam(required = false) Integer topic,
-            @RequestParam(required = false) String difficulty) {
-        List<ChallengeDto> result = (topic != null)
-                ? challengeService.listByTopic(topic)
-                : challengeService.listAll();
-        return ResponseEntity.ok(result);
+            @RequestParam(required = false) String difficulty,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        CatalogSnapshot catalog = challengeService.catalog();
+        ChallengeFilter filter;
+        try {
+            filter = new ChallengeFilter(topic, blankToNull(difficulty), blankToNull(type));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = limit == null ? ChallengeService.DEFAULT_PAGE_SIZE : Math.clamp(limit, 1, 100);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = variant(catalog.etag(), digest(filter + "|" + cursor + "|" + pageSize) + (gzip ? "-gz" : ""));
+        if (request.checkNotModified(etag)) return null;
+        byte[] body;
+        try {
+            body = challengeService.encodedPage(catalog, filter, cursor, pageSize, gzip);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .eTag(etag);
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ChallengeDto> get(@PathVariable UUID id) {
-        return challengeService.findById(id)
-                .map(ChallengeDto::from)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<ChallengeDto> get(@PathVariable UUID id, WebRequest request) {
+        CatalogSnapshot catalog = challengeService.catalog();
+        String etag = catalog.etag(id);
+        if (etag != null && request.checkNotModified(etag)) return null;
+        return catalog.find(id)
+                .map(dto -> ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(dto))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{id}/download")
-    public void download(@PathVariable UUID id, HttpServletResponse response) throws IOException {
+    public void download(@PathVariable UUID id, HttpServletRequest request, HttpServletResponse response,
+                         WebRequest webRequest) throws IOException {
         Challenge challenge = challengeService.findById(id)
                 .orElseThrow(() -> new RuntimeException("Challenge not found"));
+        BundleCache.Bundle bundle = bundleCache.get(challenge);
+        if (webRequest.checkNotModified(bundle.etag())) return;
         response.setContentType("application/zip");
         response.setHeader("Content-Disposition",
                 "attachment; filename=\"" + sanitize(challenge.getTheme()) + "-challenge.zip\"");
-        zipBundleService.writeBundle(challenge, response.getOutputStream());
+        response.setHeader(HttpHeaders.ETAG, bundle.etag());
+        response.setContentLengthLong(bundle.size());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat streams the file with sendfile once this method returns
+            request.setAttribute(SENDFILE_FILENAME, bundle.file().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, bundle.size());
+            return;
+        }
+        try (FileChannel file = FileChannel.open(bundle.file(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long pos = 0; pos < bundle.size(); ) pos += file.transferTo(pos, bundle.size() - pos, out);
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /** 128 bits of SHA-256; distinct query variants must not share a tag. */
+    private static String digest(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String variant(String etag, String suffix) {
+        return etag.substring(0, etag.length() - 1) + "-" + suffix + "\"";
     }
 
     private String sanitize(String name) {
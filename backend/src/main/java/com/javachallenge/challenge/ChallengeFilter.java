@@ -0,0 +1,34 @@
+package com.javachallenge.challenge;
+
+import java.util.Set;
+
+/** Catalog listing filter; null fields match everything. */
+public record ChallengeFilter(Integer topicId, String difficulty, String challengeType) {
+
+    // Mirror the CHECK constraints on challenges, so every filter names a real slice of the catalog
+    private static final Set<String> DIFFICULTIES = Set.of("medium", "hard");
+    private static final Set<String> TYPES = Set.of("refactor", "implement", "debug");
+
+    /**
+     * Filtered listings are memoized per filter, so only known values are accepted.
+     *
+     * @throws IllegalArgumentException for an unknown topic, difficulty or type
+     */
+    public ChallengeFilter {
+        if (topicId != null && (topicId < 1 || topicId > 6)) {
+            throw new IllegalArgumentException("Unknown topic: " + topicId);
+        }
+        if (difficulty != null && !DIFFICULTIES.contains(difficulty)) {
+            throw new IllegalArgumentException("Unknown difficulty: " + difficulty);
+        }
+        if (challengeType != null && !TYPES.contains(challengeType)) {
+            throw new IllegalArgumentException("Unknown type: " + challengeType);
+        }
+    }
+
+    boolean matches(ChallengeSummaryDto c) {
+        return (topicId == null || topicId == c.topicId())
+                && (difficulty == null || difficulty.equals(c.difficulty()))
+                && (challengeType == null || challengeType.equals(c.challengeType()));
+    }
+}
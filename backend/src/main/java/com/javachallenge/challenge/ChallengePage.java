@@ -0,0 +1,6 @@
+package com.javachallenge.challenge;
+
+import java.util.List;
+
+/** One page of the catalog; {@code nextCursor} is null on the last page. */
+public record ChallengePage(List<ChallengeSummaryDto> items, String nextCursor) {}
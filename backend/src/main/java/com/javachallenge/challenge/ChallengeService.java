@@ -1,41 +1,159 @@
 package com.javachallenge.challenge;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class ChallengeService {
+    private static final Logger log = LoggerFactory.getLogger(ChallengeService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 24;
+
     private final ChallengeRepository challengeRepo;
     private final ChallengeSeedRepository seedRepo;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile CatalogSnapshot catalog;
 
-    public ChallengeService(ChallengeRepository challengeRepo, ChallengeSeedRepository seedRepo) {
+    public ChallengeService(ChallengeRepository challengeRepo, ChallengeSeedRepository seedRepo,
+                            ObjectMapper objectMapper) {
         this.challengeRepo = challengeRepo;
         this.seedRepo = seedRepo;
+        this.objectMapper = objectMapper;
+    }
+
+    /** The current catalog, loaded on first use and then kept fresh by {@link #refreshCatalog()}. */
+    public CatalogSnapshot catalog() {
+        CatalogSnapshot current = catalog;
+        if (current == null) {
+            refreshCatalog();
+            current = catalog;
+        }
+        return current;
+    }
+
+    /** A page of {@code filter}'s matches after the challenge {@code cursor} (an id), or from the start. */
+    public ChallengePage listPage(CatalogSnapshot catalog, ChallengeFilter filter, String cursor, int limit) {
+        List<ChallengeSummaryDto> matches = catalog.list(filter);
+        int from = 0;
+        if (cursor != null) {
+            ChallengeDto last = catalog.find(UUID.fromString(cursor))
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown cursor"));
+            int index = Collections.binarySearch(matches, ChallengeSummaryDto.from(last), CatalogSnapshot.ORDER);
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        int to = Math.min(matches.size(), from + limit);
+        List<ChallengeSummaryDto> items = matches.subList(from, to);
+        String next = to < matches.size() ? items.get(items.size() - 1).id().toString() : null;
+        return new ChallengePage(items, next);
     }
 
-    public List<ChallengeDto> listAll() {
-        return challengeRepo.findAll().stream().map(ChallengeDto::from).toList();
+    /**
+     * The page as JSON, gzipped when asked. First pages of each filter at the default size are
+     * the hot variants and are encoded once per catalog snapshot; other sizes are not kept, so
+     * the memo stays bounded by the number of filters.
+     */
+    public byte[] encodedPage(CatalogSnapshot catalog, ChallengeFilter filter, String cursor, int limit,
+                              boolean gzip) {
+        if (cursor != null || limit != DEFAULT_PAGE_SIZE) return encode(listPage(catalog, filter, cursor, limit), gzip);
+        String key = filter + "|" + gzip;
+        return catalog.encodedPages().computeIfAbsent(key, k -> encode(listPage(catalog, filter, null, limit), gzip));
     }
 
-    public List<ChallengeDto> listByTopic(int topicId) {
-        return challengeRepo.findByTopicId(topicId).stream().map(ChallengeDto::from).toList();
+    private byte[] encode(ChallengePage page, boolean gzip) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(page);
+            if (!gzip) return json;
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+                gz.write(json);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
+    @Transactional(readOnly = true)
     public Optional<Challenge> findById(UUID id) {
         return challengeRepo.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public List<ChallengeSeed> listSeeds() {
         return seedRepo.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<ChallengeSeed> findSeedById(UUID id) {
         return seedRepo.findById(id);
     }
 
     public Challenge save(Challenge challenge) {
-        return challengeRepo.save(challenge);
+        Challenge saved = challengeRepo.save(challenge);
+        // A direct call skips the read-only proxy, so this reload sees the write on the primary
+        refreshCatalog();
+        return saved;
+    }
+
+    /** Reloads the catalog; also picks up rows changed by migrations or other nodes. */
+    @Transactional(readOnly = true)
+    @Scheduled(fixedDelayString = "${app.catalog.refresh-interval:PT5M}",
+            initialDelayString = "${app.catalog.refresh-interval:PT5M}")
+    public void refreshCatalog() {
+        refreshLock.lock();
+        try {
+            List<ChallengeDto> challenges = challengeRepo.findAll().stream()
+                    .map(ChallengeDto::from)
+                    .sorted(Comparator.comparing(ChallengeDto::topicId).thenComparing(ChallengeDto::createdAt)
+                            .thenComparing(ChallengeDto::id))
+                    .toList();
+            Map<UUID, String> etags = new HashMap<>();
+            MessageDigest catalogDigest = sha256();
+            for (ChallengeDto dto : challenges) {
+                byte[] json = objectMapper.writeValueAsBytes(dto);
+                etags.put(dto.id(), etag(sha256().digest(json)));
+                catalogDigest.update(json);
+            }
+            String etag = etag(catalogDigest.digest());
+            CatalogSnapshot previous = catalog;
+            // Keep the old snapshot (and its version) when nothing changed
+            if (previous != null && previous.etag().equals(etag)) return;
+            catalog = CatalogSnapshot.of(previous != null ? previous.version() + 1 : 1, etag, challenges, etags);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        } catch (RuntimeException e) {
+            // Keep serving the last good snapshot if the database is briefly unavailable
+            if (catalog == null) throw e;
+            log.warn("Challenge catalog refresh failed: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private static String etag(byte[] digest) {
+        return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
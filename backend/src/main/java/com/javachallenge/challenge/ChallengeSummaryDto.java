@@ -0,0 +1,32 @@
+package com.javachallenge.challenge;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** A catalog card: everything but the story and requirements bodies. */
+public record ChallengeSummaryDto(
+    UUID id,
+    int topicId,
+    String title,
+    String theme,
+    String difficulty,
+    String challengeType,
+    String excerpt,
+    boolean aiGenerated,
+    Instant createdAt
+) {
+    private static final int EXCERPT_LENGTH = 240;
+
+    public static ChallengeSummaryDto from(ChallengeDto c) {
+        return new ChallengeSummaryDto(
+            c.id(), c.topicId(), c.title(), c.theme(), c.difficulty(), c.challengeType(),
+            excerpt(c.story()), c.aiGenerated(), c.createdAt()
+        );
+    }
+
+    private static String excerpt(String story) {
+        if (story == null || story.length() <= EXCERPT_LENGTH) return story;
+        int cut = story.lastIndexOf(' ', EXCERPT_LENGTH);
+        return story.substring(0, cut > 0 ? cut : EXCERPT_LENGTH) + "…";
+    }
+}
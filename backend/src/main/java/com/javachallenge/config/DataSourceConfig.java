@@ -0,0 +1,80 @@
+package com.javachallenge.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Sends {@code @Transactional(readOnly = true)} work to a read replica when
+ * {@code app.datasource.replica.url} is set; without it Boot's single pool is used as before.
+ * The lazy proxy defers picking a pool until the first statement, by which point the
+ * transaction has marked the connection read-only.
+ *
+ * <p>The pool is picked per connection, so this needs {@code spring.jpa.open-in-view=false}.
+ * With an open session per request, the first read-only call would bind a replica connection
+ * that later read-write transactions in the same request reuse, and their writes would fail.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica.url:}'.isBlank()")
+public class DataSourceConfig {
+
+    public DataSourceConfig(@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException("app.datasource.replica.url requires spring.jpa.open-in-view=false");
+        }
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:}") String username,
+                                              @Value("${app.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username.isBlank() ? properties.determineUsername() : username)
+                .password(password.isBlank() ? properties.determinePassword() : password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource readOnlyDataSource(
+            @Qualifier("primaryDataSource") DataSource primary, @Qualifier("replicaDataSource") DataSource replica,
+            @Value("${app.datasource.replica.max-lag:PT5S}") Duration maxLag, MeterRegistry meterRegistry) {
+        return new ReplicaRoutingDataSource(primary, replica, maxLag, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public LazyConnectionDataSourceProxy dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                    ReplicaRoutingDataSource readOnly) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(readOnly);
+        return proxy;
+    }
+}
@@ -0,0 +1,86 @@
+package com.javachallenge.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/** Appends finished spans to a JSON-lines file; a local stand-in for a tracing backend. */
+public class FileSpanExporter implements SpanExporter {
+
+    private final Writer writer;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FileSpanExporter(Path file, ObjectMapper objectMapper) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, CREATE, APPEND, WRITE);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        lock.lock();
+        try {
+            for (SpanData span : spans) {
+                writer.write(objectMapper.writeValueAsString(toMap(span)));
+                writer.write('\n');
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static Map<String, Object> toMap(SpanData span) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("traceId", span.getTraceId());
+        json.put("spanId", span.getSpanId());
+        json.put("parentSpanId", span.getParentSpanId());
+        json.put("name", span.getName());
+        json.put("kind", span.getKind().name());
+        json.put("service", span.getResource().getAttributes().asMap().entrySet().stream()
+                .filter(e -> e.getKey().getKey().equals("service.name"))
+                .map(e -> String.valueOf(e.getValue())).findFirst().orElse(null));
+        json.put("startEpochNanos", span.getStartEpochNanos());
+        json.put("durationMs", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0);
+        json.put("status", span.getStatus().getStatusCode().name());
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        json.put("attributes", attributes);
+        return json;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        lock.lock();
+        try {
+            writer.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.javachallenge.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Target for read-only transactions: the replica while its replay lag is within
+ * {@code app.datasource.replica.max-lag}, otherwise (or if it cannot be reached) the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // An idle primary writes nothing to replay, so only count time while WAL is still being applied
+    private static final String LAG_SQL = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0
+                        WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+    private volatile boolean useReplica;
+    private volatile double lagSeconds = -1;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag,
+                                    MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replica);
+        this.maxLag = maxLag;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        Gauge.builder("datasource.replica.lag", this, r -> r.lagSeconds)
+                .description("Replay lag of the read replica; -1 when unreachable")
+                .baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("datasource.replica.active", this, r -> r.useReplica ? 1 : 0)
+                .description("Whether read-only transactions are currently sent to the replica")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return useReplica ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval:PT5S}")
+    public void checkLag() {
+        boolean healthy;
+        try {
+            Double lag = replica.queryForObject(LAG_SQL, Double.class);
+            lagSeconds = lag != null ? lag : 0;
+            healthy = lagSeconds * 1000 <= maxLag.toMillis();
+        } catch (Exception e) {
+            lagSeconds = -1;
+            healthy = false;
+        }
+        if (healthy != useReplica) {
+            log.info("Routing read-only transactions to the {} (replica lag {}s)",
+                    healthy ? "replica" : "primary", lagSeconds);
+        }
+        useReplica = healthy;
+    }
+
+    private enum Target { PRIMARY, REPLICA }
+}
@@ -25,12 +25,15 @@ public class SecurityConfig {
             .cors(cors -> cors.configure(http))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers(HttpMethod.GET, "/api/challenges", "/api/challenges/**").permitAll()
-                .requestMatchers(HttpMethod.GET, "/api/submissions/leaderboard").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/leaderboard", "/api/leaderboard/top").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/submissions/{id}").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/submissions/*/stream").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/submissions/*/log").permitAll()
                 .requestMatchers("/api/users/me").authenticated()
                 .requestMatchers("/api/submissions/**").authenticated()
+                // Only reachable on management.server.port, which is not published
                 .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/prometheus").permitAll()
                 .anyRequest().authenticated()
             )
             .exceptionHandling(ex -> ex
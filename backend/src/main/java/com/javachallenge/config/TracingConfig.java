@@ -0,0 +1,26 @@
+package com.javachallenge.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Span exporters selected by {@code app.tracing.exporter}: {@code file} for local
+ * runs. Any other SpanExporter bean (e.g. OTLP, by adding opentelemetry-exporter-otlp
+ * and setting {@code management.otlp.tracing.endpoint}) is picked up the same way.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.tracing.exporter", havingValue = "file")
+    public FileSpanExporter fileSpanExporter(@Value("${app.tracing.file}") Path file, ObjectMapper objectMapper)
+            throws IOException {
+        return new FileSpanExporter(file, objectMapper);
+    }
+}
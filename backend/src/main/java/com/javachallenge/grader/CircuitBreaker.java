@@ -0,0 +1,70 @@
+package com.javachallenge.grader;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Minimal lock-free circuit breaker. After {@code failureThreshold} consecutive failures it opens
+ * and rejects calls for {@code openDuration}; then a single trial call is let through, which
+ * either closes it again or re-opens it.
+ */
+class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private record Snapshot(State state, int failures, long openedAtNanos) {}
+
+    private static final Snapshot CLOSED = new Snapshot(State.CLOSED, 0, 0);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(CLOSED);
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /** Returns whether a call may proceed; moves an expired open breaker to half-open. */
+    boolean tryAcquire() {
+        while (true) {
+            Snapshot s = snapshot.get();
+            switch (s.state()) {
+                case CLOSED:
+                    return true;
+                case HALF_OPEN:
+                    return false;
+                default:
+                    if (System.nanoTime() - s.openedAtNanos() < openNanos) return false;
+                    if (snapshot.compareAndSet(s, new Snapshot(State.HALF_OPEN, s.failures(), s.openedAtNanos()))) {
+                        return true;
+                    }
+            }
+        }
+    }
+
+    /** Like {@link #tryAcquire()} but without side effects, for callers deciding whether to try at all. */
+    boolean isCallPermitted() {
+        Snapshot s = snapshot.get();
+        return s.state() == State.CLOSED
+                || (s.state() == State.OPEN && System.nanoTime() - s.openedAtNanos() >= openNanos);
+    }
+
+    void onSuccess() {
+        snapshot.set(CLOSED);
+    }
+
+    void onFailure() {
+        snapshot.updateAndGet(s -> {
+            int failures = s.failures() + 1;
+            if (s.state() == State.HALF_OPEN || failures >= failureThreshold) {
+                return new Snapshot(State.OPEN, failures, System.nanoTime());
+            }
+            return new Snapshot(State.CLOSED, failures, 0);
+        });
+    }
+
+    State state() {
+        return snapshot.get().state();
+    }
+}
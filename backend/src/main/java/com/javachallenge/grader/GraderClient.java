@@ -1,14 +1,35 @@
 package com.javachallenge.grader;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
 
-import java.nio.file.Path;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Component
 public class GraderClient {
@@ -19,29 +40,223 @@ public class GraderClient {
         String visibleTestsJson,
         String hiddenTestsJson,
         String checkstyleJson,
-        String log
+        String log,
+        // The grader could not grade the submission; not a verdict on the code
+        boolean error
     ) {}
 
-    private final String graderUrl;
-    private final RestTemplate restTemplate = new RestTemplate();
+    public record TestResult(
+        String name,
+        boolean passed,
+        String errorMessage,
+        double timeSeconds
+    ) {}
+
+    /** One line of the grader's NDJSON stream; see the grader's GradingEvent for the field semantics. */
+    public record GradingEvent(
+        String type,
+        String phase,
+        String label,
+        String state,
+        Long durationMs,
+        String text,
+        TestResult test,
+        Boolean hidden,
+        GraderResult result
+    ) {}
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String GRADE_STREAM = "/internal/grade/stream";
+
+    private static final Logger log = LoggerFactory.getLogger(GraderClient.class);
 
-    public GraderClient(@Value("${app.grader.url:http://grader:8081}") String graderUrl) {
-        this.graderUrl = graderUrl;
+    private final ObjectMapper objectMapper;
+    private final RestClient restClient;
+    private final Duration deadline;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService deadlines =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+
+    public GraderClient(@Value("${app.grader.url:http://grader:8081}") String graderUrl,
+                        @Value("${app.grader.connect-timeout:PT5S}") Duration connectTimeout,
+                        @Value("${app.grader.deadline:PT8M}") Duration deadline,
+                        @Value("${app.grader.max-retries:2}") int maxRetries,
+                        @Value("${app.grader.retry-backoff:PT1S}") Duration retryBackoff,
+                        @Value("${app.grader.circuit.failure-threshold:5}") int failureThreshold,
+                        @Value("${app.grader.circuit.open-duration:PT30S}") Duration openDuration,
+                        RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.deadline = deadline;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+        this.meterRegistry = meterRegistry;
+
+        // One shared JDK HttpClient: keeps connections to the grader alive and reuses them
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(deadline);
+        this.restClient = restClientBuilder.requestFactory(requestFactory).baseUrl(graderUrl).build();
+
+        Gauge.builder("grader.client.circuit.state", circuitBreaker, cb -> cb.state().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
     }
 
-    public GraderResult grade(Path zipPath, String hiddenTestsJson, String checkstyleRulesJson) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+    /** Whether the circuit breaker would currently let a grading call through. */
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
 
+    /**
+     * Grades a submission through the grader's streaming endpoint. Progress events are handed to
+     * {@code listener} as they arrive, line by line, so the log is never held in memory as a
+     * whole; the final result is returned.
+     *
+     * <p>The submission id is sent as the idempotency key, so transport failures are retried:
+     * the grader attaches a retry to the run already in progress instead of starting another.
+     * The whole call, including reading the stream, is bounded by {@code app.grader.deadline}.
+     *
+     * <p>{@code gradingMode} is the challenge's {@code maven} or {@code fast}; the grader falls
+     * back to Maven when a submission cannot be built the fast way.
+     *
+     * @throws GraderUnavailableException if the circuit breaker is open
+     */
+    public GraderResult grade(UUID submissionId, Resource zip, String hiddenTestsJson, String checkstyleRulesJson,
+                              String gradingMode, Consumer<GradingEvent> listener) {
         MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("zip", new FileSystemResource(zipPath));
+        body.add("zip", zip);
         body.add("hiddenTests", hiddenTestsJson);
         body.add("checkstyleRules", checkstyleRulesJson);
+        body.add("mode", gradingMode);
+
+        for (int attempt = 0; ; attempt++) {
+            if (!circuitBreaker.tryAcquire()) {
+                record(GRADE_STREAM, "rejected", 0);
+                throw new GraderUnavailableException("Grader is unavailable, circuit breaker is open");
+            }
+            long start = System.nanoTime();
+            try {
+                GraderResult result = exchange(submissionId, body, listener);
+                circuitBreaker.onSuccess();
+                record(GRADE_STREAM, "success", System.nanoTime() - start);
+                return result;
+            } catch (GraderRejectedException e) {
+                // The grader is up and answered; the request itself was refused, so a retry cannot help
+                circuitBreaker.onSuccess();
+                record(GRADE_STREAM, "client_error", System.nanoTime() - start);
+                throw e;
+            } catch (DeadlineExceededException e) {
+                circuitBreaker.onFailure();
+                record(GRADE_STREAM, "timeout", System.nanoTime() - start);
+                throw e;
+            } catch (RestClientException | GraderCallException e) {
+                circuitBreaker.onFailure();
+                record(GRADE_STREAM, "error", System.nanoTime() - start);
+                if (attempt >= maxRetries) throw e;
+                log.warn("Grader call for submission {} failed (attempt {}), retrying: {}",
+                        submissionId, attempt + 1, e.getMessage());
+                sleep(retryBackoff.multipliedBy(1L << attempt));
+            } catch (RuntimeException e) {
+                // Anything else (e.g. the listener failing) must still settle the call, or a
+                // half-open trial would leave the breaker half-open for good
+                circuitBreaker.onFailure();
+                record(GRADE_STREAM, "error", System.nanoTime() - start);
+                throw e;
+            }
+        }
+    }
+
+    private GraderResult exchange(UUID submissionId, MultiValueMap<String, Object> body,
+                                  Consumer<GradingEvent> listener) {
+        return restClient.post()
+                .uri(GRADE_STREAM)
+                .header("Idempotency-Key", submissionId.toString())
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .accept(NDJSON)
+                .body(body)
+                .exchange((request, response) -> {
+                    HttpStatusCode status = response.getStatusCode();
+                    if (status.is4xxClientError() && status.value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                        throw new GraderRejectedException("Grader rejected the submission with " + status);
+                    }
+                    if (status.isError()) {
+                        throw new GraderCallException("Grader responded with " + status);
+                    }
+                    // The read timeout only covers the response headers; abort a stream that runs past the deadline
+                    AtomicBoolean expired = new AtomicBoolean();
+                    ScheduledFuture<?> watchdog = deadlines.schedule(() -> {
+                        expired.set(true);
+                        response.close();
+                    }, deadline.toMillis(), TimeUnit.MILLISECONDS);
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.isBlank()) continue;
+                            GradingEvent event = objectMapper.readValue(line, GradingEvent.class);
+                            if ("result".equals(event.type())) return event.result();
+                            listener.accept(event);
+                        }
+                    } catch (IOException e) {
+                        if (expired.get()) throw new DeadlineExceededException(deadline);
+                        throw e;
+                    } finally {
+                        watchdog.cancel(false);
+                    }
+                    if (expired.get()) throw new DeadlineExceededException(deadline);
+                    throw new GraderCallException("Grader stream ended without a result");
+                });
+    }
+
+    private void record(String endpoint, String outcome, long nanos) {
+        Timer.builder("grader.client.requests")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry the grader", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlines.shutdownNow();
+    }
+
+    /** The grader answered, but not with a complete grading stream. */
+    public static class GraderCallException extends RuntimeException {
+        GraderCallException(String message) {
+            super(message);
+        }
+    }
+
+    /** The grader refused the request (4xx other than 429); neither retried nor counted against the grader. */
+    public static class GraderRejectedException extends RuntimeException {
+        GraderRejectedException(String message) {
+            super(message);
+        }
+    }
 
-        HttpEntity<MultiValueMap<String, Object>> request = new HttpEntity<>(body, headers);
-        ResponseEntity<GraderResult> response = restTemplate.postForEntity(
-                graderUrl + "/internal/grade", request, GraderResult.class
-        );
-        return response.getBody();
+    /** The grading call did not finish within {@code app.grader.deadline}. */
+    public static class DeadlineExceededException extends RuntimeException {
+        DeadlineExceededException(Duration deadline) {
+            super("Grader did not finish within " + deadline);
+        }
     }
 }
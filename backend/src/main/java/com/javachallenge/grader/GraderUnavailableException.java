@@ -0,0 +1,8 @@
+package com.javachallenge.grader;
+
+/** The grader is known to be unhealthy; the call was not attempted and can be retried later. */
+public class GraderUnavailableException extends RuntimeException {
+    public GraderUnavailableException(String message) {
+        super(message);
+    }
+}
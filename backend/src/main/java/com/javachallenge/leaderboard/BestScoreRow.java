@@ -0,0 +1,11 @@
+package com.javachallenge.leaderboard;
+
+import java.util.UUID;
+
+/** A user's best score on one challenge, as loaded to rebuild the {@link LeaderboardIndex}. */
+public interface BestScoreRow {
+    UUID getUserId();
+    UUID getChallengeId();
+    int getTopicId();
+    int getScore();
+}
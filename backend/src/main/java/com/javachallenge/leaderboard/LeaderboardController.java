@@ -0,0 +1,73 @@
+package com.javachallenge.leaderboard;
+
+import com.javachallenge.user.User;
+import com.javachallenge.user.UserService;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+    private final LeaderboardService leaderboardService;
+    private final LeaderboardIndex index;
+    private final UserService userService;
+
+    public LeaderboardController(LeaderboardService leaderboardService, LeaderboardIndex index,
+                                 UserService userService) {
+        this.leaderboardService = leaderboardService;
+        this.index = index;
+        this.userService = userService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> leaderboard(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(leaderboardService.page(Math.max(page, 0), Math.clamp(size, 1, 100)));
+    }
+
+    /** Top of the global board, a topic board ({@code topicId}) or a rolling window ({@code window=7d}). */
+    @GetMapping("/top")
+    public ResponseEntity<List<Map<String, Object>>> top(
+            @RequestParam(required = false) Integer topicId,
+            @RequestParam(required = false) String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        return board(topicId, window)
+                .map(board -> ResponseEntity.ok(leaderboardService.top(board, Math.clamp(limit, 1, 100))))
+                .orElse(ResponseEntity.badRequest().build());
+    }
+
+    @GetMapping("/me")
+    public ResponseEntity<Map<String, Object>> me(
+            @RequestParam(required = false) Integer topicId,
+            @RequestParam(required = false) String window,
+            @RequestParam(defaultValue = "2") int radius,
+            @AuthenticationPrincipal OAuth2User principal) {
+        if (principal == null) return ResponseEntity.status(401).build();
+        User user = userService.findByUsername(principal.getAttribute("login"));
+        return board(topicId, window)
+                .map(board -> ResponseEntity.ok(leaderboardService.around(board, user.getId(), Math.clamp(radius, 0, 25))))
+                .orElse(ResponseEntity.badRequest().build());
+    }
+
+    private Optional<LeaderboardIndex.Board> board(Integer topicId, String window) {
+        if (topicId != null && window != null) return Optional.empty();
+        Duration length = null;
+        if (window != null) {
+            try {
+                length = DurationStyle.detectAndParse(window);
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+        return index.board(topicId, length);
+    }
+}
@@ -0,0 +1,149 @@
+package com.javachallenge.leaderboard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory rankings for "your rank" and the topic and weekly/monthly boards: one global
+ * board, one per {@code Challenge.topicId} and one per rolling window. Loaded from Postgres
+ * at startup, updated as gradings complete, and rebuilt periodically so results that age
+ * out of a window drop off.
+ */
+@Component
+public class LeaderboardIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardIndex.class);
+
+    public record Standing(int rank, UUID userId, int score, int challengesSolved) {}
+
+    private record Result(UUID userId, UUID challengeId, int topicId, int score, Instant completedAt) {}
+
+    private final UserTotalsRepository repo;
+    private final List<Duration> windows;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Boards boards;
+    /** Results recorded while a rebuild is loading, replayed onto the new boards. */
+    private List<Result> pendingReplay;
+
+    public LeaderboardIndex(UserTotalsRepository repo,
+                            @Value("${app.leaderboard.windows:7d,30d}") List<Duration> windows) {
+        this.repo = repo;
+        this.windows = List.copyOf(windows);
+        this.boards = new Boards(this.windows);
+    }
+
+    public void record(UUID userId, UUID challengeId, int topicId, int score, Instant completedAt) {
+        Result result = new Result(userId, challengeId, topicId, score, completedAt);
+        rebuildLock.lock();
+        try {
+            if (pendingReplay != null) pendingReplay.add(result);
+        } finally {
+            rebuildLock.unlock();
+        }
+        boards.apply(result);
+    }
+
+    public List<Duration> windows() {
+        return windows;
+    }
+
+    /** The board for a topic, a window, or (both null) the global one; empty if unknown. */
+    public Optional<Board> board(Integer topicId, Duration window) {
+        Boards current = boards;
+        if (topicId != null) return Optional.of(new Board(current.topics.getOrDefault(topicId, new RankedBoard())));
+        if (window != null) return Optional.ofNullable(current.windows.get(window)).map(Board::new);
+        return Optional.of(new Board(current.global));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.leaderboard.rebuild-interval:PT1H}",
+            initialDelayString = "${app.leaderboard.rebuild-interval:PT1H}")
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            pendingReplay = new ArrayList<>();
+        } finally {
+            rebuildLock.unlock();
+        }
+        try {
+            Instant now = Instant.now();
+            Boards fresh = new Boards(windows);
+            for (BestScoreRow row : repo.findAllBests()) {
+                fresh.global.record(row.getUserId(), row.getChallengeId(), row.getScore());
+                fresh.topic(row.getTopicId()).record(row.getUserId(), row.getChallengeId(), row.getScore());
+            }
+            for (Duration window : windows) {
+                RankedBoard board = fresh.windows.get(window);
+                for (BestScoreRow row : repo.findBestsCompletedSince(now.minus(window))) {
+                    board.record(row.getUserId(), row.getChallengeId(), row.getScore());
+                }
+            }
+            rebuildLock.lock();
+            try {
+                pendingReplay.forEach(fresh::apply);
+                boards = fresh;
+            } finally {
+                rebuildLock.unlock();
+            }
+            log.info("Leaderboard index rebuilt: {} ranked users", fresh.global.size());
+        } catch (Exception e) {
+            log.warn("Leaderboard index rebuild failed: {}", e.getMessage());
+        } finally {
+            rebuildLock.lock();
+            try {
+                pendingReplay = null;
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+    }
+
+    /** Read access to one ranking. */
+    public static final class Board {
+        private final RankedBoard board;
+
+        private Board(RankedBoard board) {
+            this.board = board;
+        }
+
+        public List<Standing> top(int limit) { return board.top(limit); }
+        public Optional<Standing> standing(UUID userId) { return board.standing(userId); }
+        public List<Standing> around(UUID userId, int radius) { return board.around(userId, radius); }
+    }
+
+    private static final class Boards {
+        final RankedBoard global = new RankedBoard();
+        final Map<Integer, RankedBoard> topics = new ConcurrentHashMap<>();
+        final Map<Duration, RankedBoard> windows = new LinkedHashMap<>();
+
+        Boards(List<Duration> windowLengths) {
+            for (Duration window : windowLengths) windows.put(window, new RankedBoard());
+        }
+
+        RankedBoard topic(int topicId) {
+            return topics.computeIfAbsent(topicId, id -> new RankedBoard());
+        }
+
+        void apply(Result result) {
+            global.record(result.userId(), result.challengeId(), result.score());
+            topic(result.topicId()).record(result.userId(), result.challengeId(), result.score());
+            Instant now = Instant.now();
+            for (var window : windows.entrySet()) {
+                if (result.completedAt().isAfter(now.minus(window.getKey()))) {
+                    window.getValue().record(result.userId(), result.challengeId(), result.score());
+                }
+            }
+        }
+    }
+}
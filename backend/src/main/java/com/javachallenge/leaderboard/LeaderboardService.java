@@ -0,0 +1,97 @@
+package com.javachallenge.leaderboard;
+
+import com.javachallenge.user.User;
+import com.javachallenge.user.UserRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.*;
+
+@Service
+public class LeaderboardService {
+
+    private final UserTotalsRepository repo;
+    private final LeaderboardIndex index;
+    private final UserRepository userRepository;
+
+    public LeaderboardService(UserTotalsRepository repo, LeaderboardIndex index, UserRepository userRepository) {
+        this.repo = repo;
+        this.index = index;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Folds a passed submission into the user's best score; runs in the caller's transaction.
+     * The in-memory index only sees it once that transaction commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordPassed(UUID userId, UUID challengeId, int topicId, UUID submissionId, int score,
+                             Instant achievedAt) {
+        repo.lockUser(userId);
+        if (repo.recordBest(userId, challengeId, score, submissionId, achievedAt) > 0) {
+            repo.recomputeTotals(userId);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                index.record(userId, challengeId, topicId, score, achievedAt);
+            }
+        });
+    }
+
+    public List<Map<String, Object>> top(LeaderboardIndex.Board board, int limit) {
+        return withUsers(board.top(limit));
+    }
+
+    /** The user's standing and the users ranked around them. */
+    public Map<String, Object> around(LeaderboardIndex.Board board, UUID userId, int radius) {
+        Optional<LeaderboardIndex.Standing> mine = board.standing(userId);
+        Map<String, Object> result = new HashMap<>();
+        result.put("rank", mine.map(LeaderboardIndex.Standing::rank).orElse(null));
+        result.put("totalScore", mine.map(LeaderboardIndex.Standing::score).orElse(0));
+        result.put("neighbors", withUsers(board.around(userId, radius)));
+        return result;
+    }
+
+    private List<Map<String, Object>> withUsers(List<LeaderboardIndex.Standing> standings) {
+        Map<UUID, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(standings.stream().map(LeaderboardIndex.Standing::userId).toList())) {
+            users.put(user.getId(), user);
+        }
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (LeaderboardIndex.Standing s : standings) {
+            User user = users.get(s.userId());
+            if (user == null) continue;
+            entries.add(Map.of(
+                "rank", s.rank(),
+                "username", user.getUsername(),
+                "avatarUrl", user.getAvatarUrl() != null ? user.getAvatarUrl() : "",
+                "totalScore", s.score(),
+                "challengesSolved", s.challengesSolved()
+            ));
+        }
+        return entries;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> page(int page, int size) {
+        List<UserTotals> totals = repo.findRanked(PageRequest.of(page, size));
+        List<Map<String, Object>> ranked = new ArrayList<>();
+        for (int i = 0; i < totals.size(); i++) {
+            UserTotals t = totals.get(i);
+            ranked.add(Map.of(
+                "rank", page * size + i + 1,
+                "username", t.getUser().getUsername(),
+                "avatarUrl", t.getUser().getAvatarUrl() != null ? t.getUser().getAvatarUrl() : "",
+                "totalScore", t.getTotalScore(),
+                "challengesSolved", t.getChallengesSolved()
+            ));
+        }
+        return ranked;
+    }
+}
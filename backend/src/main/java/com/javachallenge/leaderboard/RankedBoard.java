@@ -0,0 +1,164 @@
+package com.javachallenge.leaderboard;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One ranking: each user's total is the sum of their best score per challenge. A Fenwick tree
+ * over scores counts users above any score in O(log n); users with the same total sit in a
+ * bucket ordered by id, matching the tie-break of the SQL leaderboard.
+ */
+final class RankedBoard {
+
+    /**
+     * Postgres orders uuids by their bytes, unsigned; {@link UUID#compareTo} compares signed
+     * longs and would order ties differently.
+     */
+    static final Comparator<UUID> SQL_UUID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final Map<UUID, Map<UUID, Integer>> bests = new HashMap<>();
+    private final Map<UUID, Integer> totals = new HashMap<>();
+    private final TreeMap<Integer, TreeSet<UUID>> buckets = new TreeMap<>(Comparator.reverseOrder());
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** counts[i] covers scores ending at i - 1 (Fenwick layout, 1-based). */
+    private long[] counts = new long[1024];
+
+    /** Keeps the higher of the known and the new score; replaying a result is harmless. */
+    void record(UUID userId, UUID challengeId, int score) {
+        lock.writeLock().lock();
+        try {
+            Map<UUID, Integer> mine = bests.computeIfAbsent(userId, id -> new HashMap<>());
+            Integer previous = mine.get(challengeId);
+            if (previous != null && previous >= score) return;
+            mine.put(challengeId, score);
+            Integer oldTotal = totals.get(userId);
+            int newTotal = (oldTotal != null ? oldTotal : 0) + score - (previous != null ? previous : 0);
+            if (oldTotal != null) remove(userId, oldTotal);
+            add(userId, newTotal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return totals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<LeaderboardIndex.Standing> top(int limit) {
+        lock.readLock().lock();
+        try {
+            return fromRank(1, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Optional<LeaderboardIndex.Standing> standing(UUID userId) {
+        lock.readLock().lock();
+        try {
+            int rank = rankOf(userId);
+            return rank == 0 ? Optional.empty() : Optional.of(new LeaderboardIndex.Standing(
+                    rank, userId, totals.get(userId), bests.get(userId).size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The user with up to {@code radius} neighbours on each side; empty if the user is unranked. */
+    List<LeaderboardIndex.Standing> around(UUID userId, int radius) {
+        lock.readLock().lock();
+        try {
+            int rank = rankOf(userId);
+            if (rank == 0) return List.of();
+            int from = Math.max(1, rank - radius);
+            return fromRank(from, rank + radius - from + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 1-based rank, or 0 if unranked. Within a bucket this is linear in the number of ties. */
+    private int rankOf(UUID userId) {
+        Integer total = totals.get(userId);
+        if (total == null) return 0;
+        return (int) countAbove(total) + buckets.get(total).headSet(userId).size() + 1;
+    }
+
+    private List<LeaderboardIndex.Standing> fromRank(int rank, int limit) {
+        int n = totals.size();
+        if (rank > n || limit <= 0) return List.of();
+        // The user at descending rank r is at ascending position n - r + 1
+        int score = lowerBound(n - rank + 1) - 1;
+        long skip = rank - 1 - countAbove(score);
+        List<LeaderboardIndex.Standing> page = new ArrayList<>(Math.min(limit, n - rank + 1));
+        for (var bucket : buckets.tailMap(score, true).entrySet()) {
+            for (UUID userId : bucket.getValue()) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                page.add(new LeaderboardIndex.Standing(rank++, userId, bucket.getKey(), bests.get(userId).size()));
+                if (page.size() == limit) return page;
+            }
+        }
+        return page;
+    }
+
+    private void add(UUID userId, int total) {
+        if (total + 1 >= counts.length) grow(total + 1);
+        totals.put(userId, total);
+        buckets.computeIfAbsent(total, t -> new TreeSet<>(SQL_UUID_ORDER)).add(userId);
+        update(total + 1, 1);
+    }
+
+    private void remove(UUID userId, int total) {
+        totals.remove(userId);
+        TreeSet<UUID> bucket = buckets.get(total);
+        bucket.remove(userId);
+        if (bucket.isEmpty()) buckets.remove(total);
+        update(total + 1, -1);
+    }
+
+    private void grow(int index) {
+        int size = counts.length;
+        while (size <= index) size *= 2;
+        counts = new long[size];
+        for (var bucket : buckets.entrySet()) {
+            update(bucket.getKey() + 1, bucket.getValue().size());
+        }
+    }
+
+    private void update(int index, long delta) {
+        for (int i = index; i < counts.length; i += i & -i) counts[i] += delta;
+    }
+
+    private long prefix(int index) {
+        long sum = 0;
+        for (int i = Math.min(index, counts.length - 1); i > 0; i -= i & -i) sum += counts[i];
+        return sum;
+    }
+
+    private long countAbove(int score) {
+        return totals.size() - prefix(score + 1);
+    }
+
+    /** Smallest index whose prefix count reaches {@code target}. */
+    private int lowerBound(long target) {
+        int index = 0;
+        for (int step = Integer.highestOneBit(counts.length - 1); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next < counts.length && counts[next] < target) {
+                index = next;
+                target -= counts[next];
+            }
+        }
+        return index + 1;
+    }
+}
@@ -0,0 +1,34 @@
+package com.javachallenge.leaderboard;
+
+import com.javachallenge.user.User;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "user_totals")
+public class UserTotals {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
+    private User user;
+
+    @Column(name = "total_score", nullable = false)
+    private int totalScore;
+
+    @Column(name = "challenges_solved", nullable = false)
+    private int challengesSolved;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public UUID getUserId() { return userId; }
+    public User getUser() { return user; }
+    public int getTotalScore() { return totalScore; }
+    public int getChallengesSolved() { return challengesSolved; }
+    public Instant getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,66 @@
+package com.javachallenge.leaderboard;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface UserTotalsRepository extends JpaRepository<UserTotals, UUID> {
+
+    /** Creates the user's row if needed and row-locks it, serializing updates per user. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_totals (user_id) VALUES (:userId)
+            ON CONFLICT (user_id) DO UPDATE SET updated_at = now()
+            """, nativeQuery = true)
+    void lockUser(UUID userId);
+
+    /** Keeps the higher score; on a tie the earlier submission stays. */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_challenge_best (user_id, challenge_id, best_score, submission_id, achieved_at)
+            VALUES (:userId, :challengeId, :score, :submissionId, :achievedAt)
+            ON CONFLICT (user_id, challenge_id) DO UPDATE
+               SET best_score = EXCLUDED.best_score,
+                   submission_id = EXCLUDED.submission_id,
+                   achieved_at = EXCLUDED.achieved_at
+             WHERE user_challenge_best.best_score < EXCLUDED.best_score
+            """, nativeQuery = true)
+    int recordBest(UUID userId, UUID challengeId, int score, UUID submissionId, Instant achievedAt);
+
+    /** Re-sums the user's bests: one row per solved challenge, read through the primary key. */
+    @Modifying
+    @Query(value = """
+            UPDATE user_totals t
+               SET total_score = b.total, challenges_solved = b.solved, updated_at = now()
+              FROM (SELECT COALESCE(SUM(best_score), 0) AS total, COUNT(*) AS solved
+                      FROM user_challenge_best WHERE user_id = :userId) b
+             WHERE t.user_id = :userId
+            """, nativeQuery = true)
+    void recomputeTotals(UUID userId);
+
+    @Query(value = """
+            SELECT b.user_id AS "userId", b.challenge_id AS "challengeId", c.topic_id AS "topicId",
+                   b.best_score AS "score"
+              FROM user_challenge_best b
+              JOIN challenges c ON c.id = b.challenge_id
+            """, nativeQuery = true)
+    List<BestScoreRow> findAllBests();
+
+    @Query(value = """
+            SELECT s.user_id AS "userId", s.challenge_id AS "challengeId", c.topic_id AS "topicId",
+                   MAX(s.score) AS "score"
+              FROM submissions s
+              JOIN challenges c ON c.id = s.challenge_id
+             WHERE s.status = 'passed' AND s.score IS NOT NULL AND s.completed_at >= :since
+             GROUP BY s.user_id, s.challenge_id, c.topic_id
+            """, nativeQuery = true)
+    List<BestScoreRow> findBestsCompletedSince(Instant since);
+
+    @Query("select t from UserTotals t join fetch t.user order by t.totalScore desc, t.userId")
+    List<UserTotals> findRanked(Pageable pageable);
+}
@@ -0,0 +1,172 @@
+package com.javachallenge.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Content-addressed blobs on a (shared) volume: {@code blobs/ab/cd/<sha256>.zip}, or
+ * {@code .zip.gz} once tiered to cold storage. Uploads land in {@code staging/} on the same
+ * volume so committing them is an atomic rename.
+ */
+@Component
+public class FileSystemSubmissionStorage implements SubmissionStorage {
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+    private static final String PLAIN = ".zip";
+    private static final String COMPRESSED = ".zip.gz";
+
+    private final Path blobs;
+    private final Path staging;
+
+    public FileSystemSubmissionStorage(@Value("${app.storage.root}") Path root) throws IOException {
+        this.blobs = Files.createDirectories(root.resolve("blobs"));
+        this.staging = Files.createDirectories(root.resolve("staging"));
+    }
+
+    @Override
+    public Path newStagingFile() throws IOException {
+        return Files.createFile(staging.resolve(UUID.randomUUID() + ".part"));
+    }
+
+    @Override
+    public String commit(Path staged, String sha256) throws IOException {
+        String key = validKey(sha256);
+        Path plain = blobPath(key, PLAIN);
+        Path compressed = blobPath(key, COMPRESSED);
+        Files.createDirectories(plain.getParent());
+        if (touch(plain) || touch(compressed)) {
+            // Same bytes already stored; touching it keeps the sweeper's grace period honest
+            Files.deleteIfExists(staged);
+            return key;
+        }
+        try {
+            Files.move(staged, plain, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Staged on another volume: copy through the kernel, then drop the source
+            Path part = plain.resolveSibling(key + ".part");
+            try (FileChannel in = FileChannel.open(staged, READ);
+                 FileChannel out = FileChannel.open(part, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                long size = in.size();
+                for (long pos = 0; pos < size; ) pos += out.transferFrom(in, pos, size - pos);
+            }
+            Files.move(part, plain, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(staged);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(staged);
+        }
+        return key;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        validKey(key);
+        try {
+            return Files.newInputStream(blobPath(key, PLAIN));
+        } catch (NoSuchFileException e) {
+            // Tiered to cold storage
+            return new GZIPInputStream(Files.newInputStream(blobPath(key, COMPRESSED)));
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return KEY.matcher(key).matches()
+                && (Files.exists(blobPath(key, PLAIN)) || Files.exists(blobPath(key, COMPRESSED)));
+    }
+
+    @Override
+    public int sweep(Set<String> liveKeys, Instant cutoff) throws IOException {
+        int deleted = 0;
+        for (Path blob : listFiles(blobs)) {
+            String key = keyOf(blob);
+            if (key != null && !liveKeys.contains(key) && untouchedSince(blob, cutoff)) {
+                if (Files.deleteIfExists(blob)) deleted++;
+            }
+        }
+        // Uploads whose request died before commit
+        for (Path part : listFiles(staging)) {
+            if (untouchedSince(part, cutoff)) Files.deleteIfExists(part);
+        }
+        return deleted;
+    }
+
+    @Override
+    public int compressOlderThan(Instant cutoff) throws IOException {
+        int compressed = 0;
+        for (Path blob : listFiles(blobs)) {
+            String name = blob.getFileName().toString();
+            if (!name.endsWith(PLAIN) || keyOf(blob) == null || !untouchedSince(blob, cutoff)) continue;
+            FileTime modified = Files.getLastModifiedTime(blob);
+            Path part = blob.resolveSibling(name + ".gz.part");
+            try (InputStream in = Files.newInputStream(blob);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(part))) {
+                in.transferTo(out);
+            }
+            Path target = blob.resolveSibling(name + ".gz");
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(target, modified);
+            // Readers fall back to the .gz once the plain blob is gone
+            Files.deleteIfExists(blob);
+            compressed++;
+        }
+        return compressed;
+    }
+
+    private Path blobPath(String key, String suffix) {
+        return blobs.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key + suffix);
+    }
+
+    private static String keyOf(Path blob) {
+        String name = blob.getFileName().toString();
+        String key = name.endsWith(COMPRESSED) ? name.substring(0, name.length() - COMPRESSED.length())
+                : name.endsWith(PLAIN) ? name.substring(0, name.length() - PLAIN.length()) : null;
+        return key != null && KEY.matcher(key).matches() ? key : null;
+    }
+
+    private static String validKey(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return key;
+    }
+
+    private static boolean touch(Path blob) throws IOException {
+        try {
+            Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static boolean untouchedSince(Path file, Instant cutoff) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+}
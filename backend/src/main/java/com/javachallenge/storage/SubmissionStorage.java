@@ -0,0 +1,31 @@
+package com.javachallenge.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Where uploaded submission zips live. Blobs are addressed by the SHA-256 of their bytes, so
+ * identical uploads share one blob and any backend node can read any submission.
+ */
+public interface SubmissionStorage {
+
+    /** A fresh file on the storage volume to write an upload into before {@link #commit}. */
+    Path newStagingFile() throws IOException;
+
+    /** Moves a staged file into the store under its hash and returns the blob key. */
+    String commit(Path staged, String sha256) throws IOException;
+
+    /** Reads the blob's original bytes, decompressing cold blobs on the fly. */
+    InputStream open(String key) throws IOException;
+
+    boolean exists(String key);
+
+    /** Deletes blobs not in {@code liveKeys} and staging files, both only if untouched since {@code cutoff}. */
+    int sweep(Set<String> liveKeys, Instant cutoff) throws IOException;
+
+    /** Moves blobs untouched since {@code cutoff} to cold (compressed) storage. */
+    int compressOlderThan(Instant cutoff) throws IOException;
+}
@@ -0,0 +1,126 @@
+package com.javachallenge.submission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs grading jobs on virtual threads with a hard cap on concurrent grader calls, and
+ * decides whether new submissions may join the wait queue (the queued rows in grading_jobs).
+ * The drain rate is an EWMA of completions per second and drives the Retry-After hint.
+ */
+@Component
+public class GradingExecutor {
+
+    private static final double EWMA_ALPHA = 0.3;
+    private static final long MAX_RETRY_AFTER_SECONDS = 600;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final Counter rejected;
+
+    private volatile double drainRate;
+    private volatile double avgJobSeconds = 60;
+    private long lastCompleted;
+    private long lastSampleNanos = System.nanoTime();
+
+    public GradingExecutor(@Value("${app.grading.max-in-flight:4}") int maxInFlight,
+                           @Value("${app.grading.max-queued:500}") int maxQueued,
+                           MeterRegistry meterRegistry) {
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxInFlight);
+
+        Gauge.builder("grading.executor.in_flight", this, GradingExecutor::inFlight).register(meterRegistry);
+        Gauge.builder("grading.executor.queue_depth", backlog, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("grading.executor.drain_rate", this, e -> e.drainRate)
+                .baseUnit("jobs/s").register(meterRegistry);
+        this.rejected = Counter.builder("grading.admission.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Reserves a place in the wait queue for one submission, or rejects it with an estimate of
+     * how long until the queue has room again.
+     */
+    public void admit() {
+        long depth = backlog.get();
+        while (depth < maxQueued) {
+            if (backlog.compareAndSet(depth, depth + 1)) return;
+            depth = backlog.get();
+        }
+        rejected.increment();
+        throw new TooManySubmissionsException("Grading queue is full", estimateWait(depth - maxQueued + 1));
+    }
+
+    /** Replaces the locally tracked queue depth with the authoritative count from Postgres. */
+    public void updateBacklog(long queuedJobs) {
+        backlog.set(queuedJobs);
+    }
+
+    public int availableSlots() {
+        return permits.availablePermits();
+    }
+
+    public int inFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public long queueDepth() {
+        return backlog.get();
+    }
+
+    public void execute(Runnable job) {
+        if (!permits.tryAcquire()) throw new RejectedExecutionException("No free grading slot");
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                job.run();
+            } finally {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                avgJobSeconds = EWMA_ALPHA * seconds + (1 - EWMA_ALPHA) * avgJobSeconds;
+                completed.incrementAndGet();
+                permits.release();
+            }
+        });
+    }
+
+    Duration estimateWait(long jobsAhead) {
+        // Before anything has completed, assume every slot drains at the average job duration
+        double rate = drainRate > 0 ? drainRate : maxInFlight / avgJobSeconds;
+        long seconds = (long) Math.ceil(jobsAhead / rate);
+        return Duration.ofSeconds(Math.clamp(seconds, 1, MAX_RETRY_AFTER_SECONDS));
+    }
+
+    @Scheduled(fixedDelayString = "${app.grading.drain-sample-interval:PT5S}")
+    public void sampleDrainRate() {
+        long now = System.nanoTime();
+        long done = completed.get();
+        double sample = (done - lastCompleted) / ((now - lastSampleNanos) / 1e9);
+        drainRate = EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * drainRate;
+        lastCompleted = done;
+        lastSampleNanos = now;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Unfinished jobs keep their lease and are reclaimed once it expires
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,155 @@
+package com.javachallenge.submission;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Postgres-backed grading queue. Jobs are leased to a worker for {@code app.grading.lease};
+ * a worker that dies simply stops renewing its lease and the job becomes claimable again.
+ */
+@Service
+public class GradingJobQueue {
+
+    private final GradingJobRepository repo;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final int maxAttempts;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public GradingJobQueue(GradingJobRepository repo, Tracer tracer, Propagator propagator,
+                           @Value("${app.grading.lease:PT2M}") Duration lease,
+                           @Value("${app.grading.retry-backoff:PT10S}") Duration retryBackoff,
+                           @Value("${app.grading.max-attempts:3}") int maxAttempts) {
+        this.repo = repo;
+        this.lease = lease;
+        this.retryBackoff = retryBackoff;
+        this.maxAttempts = maxAttempts;
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    @Transactional
+    public GradingJob enqueue(UUID submissionId) {
+        GradingJob job = new GradingJob();
+        job.setSubmissionId(submissionId);
+        job.setMaxAttempts(maxAttempts);
+        job.setTraceparent(currentTraceparent());
+        return repo.save(job);
+    }
+
+    /** Resumes the trace of the request that enqueued the job, or starts a new one. */
+    public Span startSpan(GradingJob job) {
+        Span.Builder builder = job.getTraceparent() != null
+                ? propagator.extract(Map.of("traceparent", job.getTraceparent()), Map::get)
+                : tracer.spanBuilder();
+        return builder.name("grading.job")
+                .tag("submission.id", job.getSubmissionId().toString())
+                .tag("job.attempt", String.valueOf(job.getAttempts()))
+                .start();
+    }
+
+    private String currentTraceparent() {
+        Span span = tracer.currentSpan();
+        if (span == null) return null;
+        Map<String, String> carrier = new HashMap<>();
+        propagator.inject(span.context(), carrier, Map::put);
+        return carrier.get("traceparent");
+    }
+
+    @Transactional
+    public List<GradingJob> claim(String workerId, int limit) {
+        if (limit <= 0) return List.of();
+        return repo.claim(workerId, lease.toSeconds(), limit);
+    }
+
+    public long countQueued() {
+        return repo.countByStatus("queued");
+    }
+
+    @Transactional
+    public void renew(Collection<UUID> jobIds, String workerId) {
+        if (jobIds.isEmpty()) return;
+        repo.renewLeases(jobIds, workerId, lease.toSeconds());
+    }
+
+    @Transactional
+    public void complete(UUID jobId, String workerId) {
+        repo.findById(jobId)
+                .filter(job -> workerId.equals(job.getLockedBy()))
+                .ifPresent(job -> {
+                    job.setStatus("done");
+                    release(job);
+                });
+    }
+
+    /**
+     * Puts a failed job back on the queue with exponential backoff, or buries it once its
+     * attempts are used up. Returns {@code true} if the job will be retried.
+     */
+    @Transactional
+    public boolean fail(UUID jobId, String workerId, String error) {
+        GradingJob job = repo.findById(jobId)
+                .filter(j -> workerId.equals(j.getLockedBy()))
+                .orElse(null);
+        if (job == null) return false;
+
+        job.setLastError(error);
+        boolean retry = job.getAttempts() < job.getMaxAttempts();
+        if (retry) {
+            job.setStatus("queued");
+            job.setRunAt(Instant.now().plus(retryBackoff.multipliedBy(1L << (job.getAttempts() - 1))));
+        } else {
+            job.setStatus("dead");
+        }
+        release(job);
+        return retry;
+    }
+
+    /**
+     * Returns a claimed job to the queue without counting the attempt, for failures that say
+     * nothing about the submission (the grader being down).
+     */
+    @Transactional
+    public void postpone(UUID jobId, String workerId, Duration delay) {
+        repo.findById(jobId)
+                .filter(job -> workerId.equals(job.getLockedBy()))
+                .ifPresent(job -> {
+                    job.setStatus("queued");
+                    job.setAttempts(job.getAttempts() - 1);
+                    job.setRunAt(Instant.now().plus(delay));
+                    release(job);
+                });
+    }
+
+    /** Buries jobs whose lease expired on their last attempt and returns their submission ids. */
+    @Transactional
+    public List<UUID> reapAbandoned() {
+        List<GradingJob> abandoned = repo.findAbandoned();
+        for (GradingJob job : abandoned) {
+            job.setStatus("dead");
+            job.setLastError("Lease expired after " + job.getAttempts() + " attempts");
+            release(job);
+        }
+        return abandoned.stream().map(GradingJob::getSubmissionId).toList();
+    }
+
+    private void release(GradingJob job) {
+        job.setLockedBy(null);
+        job.setLockedUntil(null);
+        job.setUpdatedAt(Instant.now());
+        repo.save(job);
+    }
+}
@@ -0,0 +1,57 @@
+package com.javachallenge.submission;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface GradingJobRepository extends JpaRepository<GradingJob, UUID> {
+
+    /**
+     * Atomically leases up to {@code limit} runnable jobs to {@code workerId}. Jobs whose lease
+     * expired (the owning worker died) are picked up again as long as they have attempts left.
+     * SKIP LOCKED lets concurrent workers claim disjoint batches without blocking each other.
+     */
+    @Query(value = """
+            UPDATE grading_jobs
+               SET status = 'running',
+                   attempts = attempts + 1,
+                   locked_by = :workerId,
+                   locked_until = now() + (:leaseSeconds * interval '1 second'),
+                   updated_at = now()
+             WHERE id IN (
+                   SELECT id FROM grading_jobs
+                    WHERE attempts < max_attempts
+                      AND ((status = 'queued' AND run_at <= now())
+                        OR (status = 'running' AND locked_until < now()))
+                    ORDER BY run_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<GradingJob> claim(String workerId, long leaseSeconds, int limit);
+
+    /** Jobs whose lease expired on their final attempt; they will never be claimed again. */
+    @Query(value = """
+            SELECT * FROM grading_jobs
+             WHERE status = 'running'
+               AND locked_until < now()
+               AND attempts >= max_attempts
+             FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<GradingJob> findAbandoned();
+
+    @Modifying
+    @Query(value = """
+            UPDATE grading_jobs
+               SET locked_until = now() + (:leaseSeconds * interval '1 second'),
+                   updated_at = now()
+             WHERE id IN (:ids) AND locked_by = :workerId AND status = 'running'
+            """, nativeQuery = true)
+    int renewLeases(Collection<UUID> ids, String workerId, long leaseSeconds);
+
+    long countByStatus(String status);
+}
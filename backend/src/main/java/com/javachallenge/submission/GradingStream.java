@@ -0,0 +1,111 @@
+package com.javachallenge.submission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * One SSE viewer of a submission. Subscribes to the event bus before the single catch-up read
+ * so nothing is missed, holds live events back until the catch-up has been sent, and uses the
+ * log chunk sequence number to drop whatever the catch-up already covered. All sends happen on a private
+ * virtual thread so a slow client never stalls the grading thread.
+ */
+class GradingStream implements Consumer<SubmissionEvent> {
+
+    private final SseEmitter emitter;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+    private final List<SubmissionEvent> pending = new ArrayList<>();
+    private int sentSeq;
+    private boolean caughtUp;
+    private boolean closed;
+
+    GradingStream(SseEmitter emitter, ObjectMapper objectMapper, int lastEventId) {
+        this.emitter = emitter;
+        this.objectMapper = objectMapper;
+        this.sentSeq = lastEventId;
+    }
+
+    @Override
+    public void accept(SubmissionEvent event) {
+        send(() -> {
+            if (caughtUp) deliver(event);
+            else pending.add(event);
+        });
+    }
+
+    /** Sends the persisted state of the submission, then releases any buffered live events. */
+    void catchUp(Submission submission, List<SubmissionLogChunk> missedChunks) {
+        send(() -> {
+            try {
+                if (submission == null) {
+                    emitter.send(SseEmitter.event().name("error").data("{\"message\":\"Submission not found\"}"));
+                    close();
+                    return;
+                }
+                for (SubmissionLogChunk chunk : missedChunks) {
+                    deliver(SubmissionEvent.log(chunk.getSeq(), chunk.getContent()));
+                }
+                deliver(SubmissionEvent.status(submission.getStatus(), submission.getScore()));
+                if (SubmissionService.isTerminal(submission.getStatus())) {
+                    deliver(SubmissionEvent.complete(objectMapper.writeValueAsString(SubmissionDto.from(submission))));
+                    return;
+                }
+                caughtUp = true;
+                pending.forEach(this::deliver);
+                pending.clear();
+            } catch (Exception e) {
+                fail(e);
+            }
+        });
+    }
+
+    private void send(Runnable task) {
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // viewer already disconnected
+        }
+    }
+
+    private void deliver(SubmissionEvent event) {
+        if (closed) return;
+        try {
+            switch (event.name()) {
+                case "log" -> {
+                    if (event.seq() <= sentSeq) return;
+                    emitter.send(SseEmitter.event().id(String.valueOf(event.seq())).name("log").data(event.data()));
+                    sentSeq = event.seq();
+                }
+                case "complete" -> {
+                    emitter.send(SseEmitter.event().name(event.name()).data(event.data()));
+                    close();
+                }
+                default -> emitter.send(SseEmitter.event().name(event.name()).data(event.data()));
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private void close() {
+        closed = true;
+        emitter.complete();
+    }
+
+    private void fail(Exception e) {
+        closed = true;
+        emitter.completeWithError(e);
+    }
+
+    /** Stops the sender once the emitter is done; called from the emitter lifecycle callbacks. */
+    void shutdown() {
+        sender.shutdown();
+    }
+}
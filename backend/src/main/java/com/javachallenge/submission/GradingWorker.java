@@ -0,0 +1,121 @@
+package com.javachallenge.submission;
+
+import com.javachallenge.grader.GraderClient;
+import com.javachallenge.grader.GraderUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Polls the grading queue and hands claimed jobs to the {@link GradingExecutor}. It only
+ * claims as many jobs as there are free slots, so everything else stays queued in Postgres
+ * where any backend instance can pick it up.
+ */
+@Component
+public class GradingWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(GradingWorker.class);
+    private static final Duration GRADER_DOWN_DELAY = Duration.ofSeconds(15);
+
+    private final GradingJobQueue queue;
+    private final SubmissionService submissionService;
+    private final GradingExecutor executor;
+    private final GraderClient graderClient;
+    private final String workerId =
+            ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWait;
+    private final Tracer tracer;
+
+    public GradingWorker(GradingJobQueue queue, SubmissionService submissionService,
+                         GradingExecutor executor, GraderClient graderClient, MeterRegistry meterRegistry,
+                         Tracer tracer) {
+        this.queue = queue;
+        this.submissionService = submissionService;
+        this.executor = executor;
+        this.graderClient = graderClient;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.queueWait = Timer.builder("grading.queue.wait")
+                .description("Time a job was runnable before a worker claimed it")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.grading.poll-interval:PT1S}")
+    public void poll() {
+        try {
+            executor.updateBacklog(queue.countQueued());
+            // Leave jobs queued while the grader is unhealthy instead of burning their attempts
+            if (!graderClient.isAvailable()) return;
+            for (GradingJob job : queue.claim(workerId, executor.availableSlots())) {
+                queueWait.record(Duration.between(job.getRunAt(), Instant.now()));
+                inFlight.add(job.getId());
+                executor.execute(() -> run(job));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to claim grading jobs: {}", e.getMessage());
+        }
+    }
+
+    /** Keeps leases of running jobs alive and buries jobs abandoned by dead workers. */
+    @Scheduled(fixedDelayString = "${app.grading.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        try {
+            queue.renew(Set.copyOf(inFlight), workerId);
+            List<UUID> abandoned = queue.reapAbandoned();
+            for (UUID submissionId : abandoned) {
+                submissionService.markErrored(submissionId, "Grading was interrupted too many times");
+            }
+        } catch (Exception e) {
+            log.warn("Grading heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void run(GradingJob job) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Span span = queue.startSpan(job);
+        String outcome = "completed";
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            submissionService.grade(job.getSubmissionId());
+            queue.complete(job.getId(), workerId);
+        } catch (GraderUnavailableException e) {
+            outcome = "postponed";
+            queue.postpone(job.getId(), workerId, GRADER_DOWN_DELAY);
+        } catch (GraderClient.GraderRejectedException e) {
+            // The grader would refuse the same request again; no point spending the remaining attempts
+            outcome = "errored";
+            span.error(e);
+            queue.complete(job.getId(), workerId);
+            submissionService.markErrored(job.getSubmissionId(), e.getMessage());
+        } catch (Exception e) {
+            log.warn("Grading job {} failed (attempt {}): {}", job.getId(), job.getAttempts(), e.getMessage());
+            span.error(e);
+            boolean retrying = queue.fail(job.getId(), workerId, String.valueOf(e.getMessage()));
+            if (retrying) {
+                outcome = "retrying";
+                submissionService.markRetrying(job.getSubmissionId(), e.getMessage());
+            } else {
+                outcome = "errored";
+                submissionService.markErrored(job.getSubmissionId(), e.getMessage());
+            }
+        } finally {
+            inFlight.remove(job.getId());
+            span.tag("outcome", outcome).end();
+            sample.stop(Timer.builder("grading.job.duration").tag("outcome", outcome).register(meterRegistry));
+        }
+    }
+}
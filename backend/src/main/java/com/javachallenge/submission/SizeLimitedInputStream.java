@@ -0,0 +1,48 @@
+package com.javachallenge.submission;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Fails the read that crosses {@code limit} bytes, so oversized uploads stop mid-stream. */
+class SizeLimitedInputStream extends FilterInputStream {
+
+    private final long limit;
+    private long count;
+
+    SizeLimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) count(1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) count(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    private void count(long n) {
+        count += n;
+        if (count > limit) throw new UploadTooLargeException(limit);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -27,6 +27,9 @@ public class Submission {
     @Column(name = "zip_path")
     private String zipPath;
 
+    @Column(name = "blob_key")
+    private String blobKey;
+
     @Column(nullable = false)
     private String status = "pending";
 
@@ -44,8 +47,14 @@ public class Submission {
     @Column(name = "checkstyle_violations_json", columnDefinition = "jsonb")
     private String checkstyleViolationsJson;
 
-    @Column(name = "grader_log", columnDefinition = "TEXT")
-    private String graderLog;
+    @Column(name = "content_hash")
+    private String contentHash;
+
+    @Column(name = "cache_key")
+    private String cacheKey;
+
+    @Column(nullable = false)
+    private boolean cached;
 
     @Column(name = "submitted_at", updatable = false)
     private Instant submittedAt = Instant.now();
@@ -61,6 +70,8 @@ public class Submission {
     public void setChallenge(Challenge challenge) { this.challenge = challenge; }
     public String getZipPath() { return zipPath; }
     public void setZipPath(String zipPath) { this.zipPath = zipPath; }
+    public String getBlobKey() { return blobKey; }
+    public void setBlobKey(String blobKey) { this.blobKey = blobKey; }
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
     public Integer getScore() { return score; }
@@ -71,8 +82,12 @@ public class Submission {
     public void setHiddenTestsJson(String json) { this.hiddenTestsJson = json; }
     public String getCheckstyleViolationsJson() { return checkstyleViolationsJson; }
     public void setCheckstyleViolationsJson(String json) { this.checkstyleViolationsJson = json; }
-    public String getGraderLog() { return graderLog; }
-    public void setGraderLog(String log) { this.graderLog = log; }
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+    public boolean isCached() { return cached; }
+    public void setCached(boolean cached) { this.cached = cached; }
     public Instant getSubmittedAt() { return submittedAt; }
     public Instant getCompletedAt() { return completedAt; }
     public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
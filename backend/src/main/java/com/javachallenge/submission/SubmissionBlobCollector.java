@@ -0,0 +1,57 @@
+package com.javachallenge.submission;
+
+import com.javachallenge.storage.SubmissionStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Mark-and-sweep over the submission store: blob keys still referenced by a submission are
+ * live, everything else is deleted once it is older than the grace period (which covers
+ * uploads whose transaction has not committed yet). Old blobs are tiered to compressed form.
+ * Safe to run on every node at once.
+ */
+@Component
+public class SubmissionBlobCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionBlobCollector.class);
+
+    private final SubmissionRepository repo;
+    private final SubmissionStorage storage;
+    private final Duration grace;
+    private final Duration compressAfter;
+    private final Duration retention;
+
+    public SubmissionBlobCollector(SubmissionRepository repo, SubmissionStorage storage,
+                                   @Value("${app.storage.gc-grace:PT24H}") Duration grace,
+                                   @Value("${app.storage.compress-after:P7D}") Duration compressAfter,
+                                   @Value("${app.storage.retention:P0D}") Duration retention) {
+        this.repo = repo;
+        this.storage = storage;
+        this.grace = grace;
+        this.compressAfter = compressAfter;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.gc-interval:PT1H}", initialDelayString = "PT5M")
+    public void collect() {
+        try {
+            Instant now = Instant.now();
+            if (!retention.isZero()) {
+                repo.releaseBlobsCompletedBefore(now.minus(retention));
+            }
+            int deleted = storage.sweep(repo.findLiveBlobKeys(), now.minus(grace));
+            int compressed = storage.compressOlderThan(now.minus(compressAfter));
+            if (deleted > 0 || compressed > 0) {
+                log.info("Submission store: deleted {} unreferenced blobs, compressed {}", deleted, compressed);
+            }
+        } catch (Exception e) {
+            log.warn("Submission store collection failed: {}", e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.javachallenge.submission;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javachallenge.zip.ZipRejectedException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -9,6 +14,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -17,12 +23,33 @@ import java.util.UUID;
 @RequestMapping("/api/submissions")
 public class SubmissionController {
     private final SubmissionService submissionService;
+    private final SubmissionEventBus eventBus;
+    private final ObjectMapper objectMapper;
 
-    public SubmissionController(SubmissionService submissionService) {
+    public SubmissionController(SubmissionService submissionService, SubmissionEventBus eventBus,
+                                ObjectMapper objectMapper) {
         this.submissionService = submissionService;
+        this.eventBus = eventBus;
+        this.objectMapper = objectMapper;
     }
 
-    @PostMapping
+    /**
+     * Preferred upload: the zip is the raw request body, read once and streamed into storage
+     * instead of being buffered by multipart parsing first.
+     */
+    @PostMapping(consumes = "application/zip")
+    public ResponseEntity<SubmissionDto> submitZip(
+            @RequestParam UUID challengeId,
+            HttpServletRequest request,
+            @AuthenticationPrincipal OAuth2User principal) throws IOException {
+        if (principal == null) return ResponseEntity.status(401).build();
+        String username = principal.getAttribute("login");
+        Submission s = submissionService.createSubmission(challengeId, username, request.getInputStream(),
+                request.getContentLengthLong());
+        return ResponseEntity.accepted().body(SubmissionDto.from(s));
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<SubmissionDto> submit(
             @RequestParam UUID challengeId,
             @RequestParam MultipartFile file,
@@ -33,6 +60,26 @@ public class SubmissionController {
         return ResponseEntity.accepted().body(SubmissionDto.from(s));
     }
 
+    @ExceptionHandler(TooManySubmissionsException.class)
+    public ResponseEntity<Map<String, Object>> tooManySubmissions(TooManySubmissionsException e) {
+        // Round up: Retry-After is whole seconds and 0 would invite an immediate retry
+        long retryAfter = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(Map.of("message", e.getMessage(), "retryAfterSeconds", retryAfter));
+    }
+
+    @ExceptionHandler(ZipRejectedException.class)
+    public ResponseEntity<Map<String, Object>> zipRejected(ZipRejectedException e) {
+        return ResponseEntity.unprocessableEntity().body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(UploadTooLargeException.class)
+    public ResponseEntity<Map<String, Object>> uploadTooLarge(UploadTooLargeException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(Map.of("message", e.getMessage(), "limitBytes", e.getLimitBytes()));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<SubmissionDto> get(@PathVariable UUID id) {
         return submissionService.findById(id)
@@ -41,12 +88,27 @@ public class SubmissionController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/{id}/log")
+    public ResponseEntity<List<SubmissionLogChunkDto>> log(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "1") int fromSeq,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(submissionService.logChunks(id, fromSeq, Math.clamp(limit, 1, 1000))
+                .stream().map(SubmissionLogChunkDto::from).toList());
+    }
+
     @GetMapping("/my")
-    public ResponseEntity<List<SubmissionDto>> mySubmissions(
+    public ResponseEntity<SubmissionPage> mySubmissions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
             @AuthenticationPrincipal OAuth2User principal) {
         if (principal == null) return ResponseEntity.status(401).build();
         String username = principal.getAttribute("login");
-        return ResponseEntity.ok(submissionService.findByUsername(username));
+        try {
+            return ResponseEntity.ok(submissionService.history(username, cursor, Math.clamp(limit, 1, 100)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/my/stats")
@@ -57,64 +119,25 @@ public class SubmissionController {
         return ResponseEntity.ok(submissionService.statsForUser(username));
     }
 
-    @GetMapping("/leaderboard")
-    public ResponseEntity<List<Map<String, Object>>> leaderboard() {
-        return ResponseEntity.ok(submissionService.leaderboard());
-    }
-
     @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamGrading(@PathVariable UUID id) {
+    public SseEmitter streamGrading(@PathVariable UUID id,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Integer lastEventId) {
         SseEmitter emitter = new SseEmitter(300_000L); // 5 min timeout
-
-        java.util.concurrent.ScheduledExecutorService scheduler =
-            java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
-
-        final int[] lastLogLength = {0};
-
-        var future = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                var subOpt = submissionService.findById(id);
-                if (subOpt.isEmpty()) {
-                    emitter.send(SseEmitter.event().name("error").data("{\"message\":\"Submission not found\"}"));
-                    emitter.complete();
-                    scheduler.shutdown();
-                    return;
-                }
-                Submission sub = subOpt.get();
-
-                // Send new log lines
-                String currentLog = sub.getGraderLog() != null ? sub.getGraderLog() : "";
-                if (currentLog.length() > lastLogLength[0]) {
-                    String newContent = currentLog.substring(lastLogLength[0]);
-                    lastLogLength[0] = currentLog.length();
-                    emitter.send(SseEmitter.event().name("log").data(newContent));
-                }
-
-                // Send status updates
-                String status = sub.getStatus();
-                emitter.send(SseEmitter.event().name("status").data(
-                    "{\"status\":\"" + status + "\"" +
-                    (sub.getScore() != null ? ",\"score\":" + sub.getScore() : "") + "}"
-                ));
-
-                // If terminal state, send final result and close
-                if ("passed".equals(status) || "failed".equals(status) || "error".equals(status)) {
-                    emitter.send(SseEmitter.event().name("complete").data(
-                        new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(SubmissionDto.from(sub))
-                    ));
-                    emitter.complete();
-                    scheduler.shutdown();
-                }
-            } catch (Exception e) {
-                emitter.completeWithError(e);
-                scheduler.shutdown();
-            }
-        }, 0, 800, java.util.concurrent.TimeUnit.MILLISECONDS);
-
-        emitter.onCompletion(scheduler::shutdown);
-        emitter.onTimeout(scheduler::shutdown);
-        emitter.onError(t -> scheduler.shutdown());
-
+        GradingStream stream = new GradingStream(emitter, objectMapper, lastEventId != null ? lastEventId : 0);
+
+        // Subscribe before reading so events published during the catch-up are not lost
+        SubmissionEventBus.Subscription subscription = eventBus.subscribe(id, stream);
+        Runnable cleanup = () -> {
+            subscription.close();
+            stream.shutdown();
+        };
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(t -> cleanup.run());
+
+        int fromSeq = (lastEventId != null ? lastEventId : 0) + 1;
+        stream.catchUp(submissionService.findWithChallengeById(id).orElse(null),
+                submissionService.logChunks(id, fromSeq));
         return emitter;
     }
 }
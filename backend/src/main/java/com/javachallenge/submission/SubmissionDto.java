@@ -12,6 +12,7 @@ public record SubmissionDto(
     String visibleTestsJson,
     String hiddenTestsJson,
     String checkstyleViolationsJson,
+    boolean cached,
     Instant submittedAt,
     Instant completedAt
 ) {
@@ -25,6 +26,7 @@ public record SubmissionDto(
             s.getVisibleTestsJson(),
             s.getHiddenTestsJson(),
             s.getCheckstyleViolationsJson(),
+            s.isCached(),
             s.getSubmittedAt(),
             s.getCompletedAt()
         );
@@ -0,0 +1,22 @@
+package com.javachallenge.submission;
+
+/**
+ * A grading progress event. For {@code log} events {@code seq} is the sequence number of the
+ * persisted log chunk and doubles as the SSE event id used for Last-Event-ID resume; other
+ * events carry 0.
+ */
+public record SubmissionEvent(String name, int seq, String data) {
+
+    public static SubmissionEvent log(int seq, String text) {
+        return new SubmissionEvent("log", seq, text);
+    }
+
+    public static SubmissionEvent status(String status, Integer score) {
+        return new SubmissionEvent("status", 0,
+                "{\"status\":\"" + status + "\"" + (score != null ? ",\"score\":" + score : "") + "}");
+    }
+
+    public static SubmissionEvent complete(String submissionJson) {
+        return new SubmissionEvent("complete", 0, submissionJson);
+    }
+}
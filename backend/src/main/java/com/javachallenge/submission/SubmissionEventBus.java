@@ -0,0 +1,54 @@
+package com.javachallenge.submission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * In-process fan-out of grading events to every viewer of a submission. Listeners must not
+ * block: they are invoked on the grading thread.
+ */
+@Component
+public class SubmissionEventBus {
+
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final ConcurrentHashMap<UUID, Set<Consumer<SubmissionEvent>>> listeners = new ConcurrentHashMap<>();
+
+    public SubmissionEventBus(MeterRegistry meterRegistry) {
+        Gauge.builder("grading.sse.connections", this, SubmissionEventBus::viewerCount).register(meterRegistry);
+    }
+
+    public Subscription subscribe(UUID submissionId, Consumer<SubmissionEvent> listener) {
+        listeners.compute(submissionId, (id, set) -> {
+            Set<Consumer<SubmissionEvent>> target = set != null ? set : new CopyOnWriteArraySet<>();
+            target.add(listener);
+            return target;
+        });
+        return () -> listeners.computeIfPresent(submissionId, (id, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public void publish(UUID submissionId, SubmissionEvent event) {
+        Set<Consumer<SubmissionEvent>> set = listeners.get(submissionId);
+        if (set == null) return;
+        for (Consumer<SubmissionEvent> listener : set) {
+            listener.accept(event);
+        }
+    }
+
+    public int viewerCount() {
+        return listeners.values().stream().mapToInt(Set::size).sum();
+    }
+}
@@ -0,0 +1,46 @@
+package com.javachallenge.submission;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+@Entity
+@Table(name = "submission_log_chunks")
+@IdClass(SubmissionLogChunk.Key.class)
+public class SubmissionLogChunk {
+
+    public static class Key implements Serializable {
+        private UUID submissionId;
+        private int seq;
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && seq == k.seq && Objects.equals(submissionId, k.submissionId);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(submissionId, seq); }
+    }
+
+    @Id
+    @Column(name = "submission_id")
+    private UUID submissionId;
+
+    @Id
+    private int seq;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    // Getters
+    public UUID getSubmissionId() { return submissionId; }
+    public int getSeq() { return seq; }
+    public String getContent() { return content; }
+    public Instant getCreatedAt() { return createdAt; }
+}
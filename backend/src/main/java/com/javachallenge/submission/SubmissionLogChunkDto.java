@@ -0,0 +1,13 @@
+package com.javachallenge.submission;
+
+import java.time.Instant;
+
+public record SubmissionLogChunkDto(
+    int seq,
+    String content,
+    Instant createdAt
+) {
+    public static SubmissionLogChunkDto from(SubmissionLogChunk c) {
+        return new SubmissionLogChunkDto(c.getSeq(), c.getContent(), c.getCreatedAt());
+    }
+}
@@ -0,0 +1,49 @@
+package com.javachallenge.submission;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface SubmissionLogChunkRepository extends JpaRepository<SubmissionLogChunk, SubmissionLogChunk.Key> {
+
+    /**
+     * Appends one chunk after the current last one and returns its sequence number. The seq is
+     * taken from {@code submissions.log_seq}, whose update row-locks the submission, so
+     * concurrent appenders are serialised rather than colliding on the primary key.
+     */
+    @Transactional
+    @Query(value = """
+            WITH next AS (
+                UPDATE submissions SET log_seq = log_seq + 1
+                 WHERE id = :submissionId
+                RETURNING id, log_seq)
+            INSERT INTO submission_log_chunks (submission_id, seq, content)
+            SELECT id, log_seq, :content FROM next
+            RETURNING seq
+            """, nativeQuery = true)
+    int append(UUID submissionId, String content);
+
+    /** Copies the full log of one submission onto another that has no chunks yet. */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            WITH copied AS (
+                INSERT INTO submission_log_chunks (submission_id, seq, content)
+                SELECT :targetId, seq, content
+                  FROM submission_log_chunks
+                 WHERE submission_id = :sourceId
+                RETURNING seq)
+            UPDATE submissions SET log_seq = (SELECT COALESCE(MAX(seq), 0) FROM copied)
+             WHERE id = :targetId
+            """, nativeQuery = true)
+    void copy(UUID sourceId, UUID targetId);
+
+    List<SubmissionLogChunk> findBySubmissionIdAndSeqGreaterThanEqualOrderBySeq(UUID submissionId, int fromSeq, Limit limit);
+
+    List<SubmissionLogChunk> findBySubmissionIdAndSeqGreaterThanEqualOrderBySeq(UUID submissionId, int fromSeq);
+}
@@ -0,0 +1,6 @@
+package com.javachallenge.submission;
+
+import java.util.List;
+
+/** One page of history; {@code nextCursor} is null on the last page. */
+public record SubmissionPage(List<SubmissionSummaryDto> items, String nextCursor) {}
@@ -0,0 +1,141 @@
+package com.javachallenge.submission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets guarding grader capacity: one per user and challenge type, plus a global one.
+ * Buckets are GCRA cells, a single CAS-updated "theoretical arrival time" each, so admitting a
+ * submission never takes a lock.
+ *
+ * <p>Buckets live in this JVM. The global limit is sized for the whole grader and divided by
+ * {@code app.rate-limit.nodes}, so each node admits its share. Per-user buckets are per node
+ * as well: a user whose requests are spread over several nodes gets up to that many times
+ * their limit, which still leaves the global share in force.
+ */
+@Component
+public class SubmissionRateLimiter {
+
+    private static final String DEFAULT_TYPE = "default";
+
+    private final Map<String, Limit> userLimits = new HashMap<>();
+    private final Limit globalLimit;
+    private final Bucket global = new Bucket();
+    private final Map<String, Bucket> userBuckets = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Limits are {@code burst/period}: up to {@code burst} submissions at once, refilling one
+     * token every {@code period / burst}. Per-user limits are keyed by challenge type, with
+     * {@code default} covering the rest. The global limit is for all {@code nodes} together.
+     */
+    public SubmissionRateLimiter(
+            @Value("${app.rate-limit.per-user:default=10/PT10M}") List<String> userLimits,
+            @Value("${app.rate-limit.global:120/PT10M}") String globalLimit,
+            @Value("${app.rate-limit.nodes:1}") int nodes,
+            MeterRegistry meterRegistry) {
+        for (String entry : userLimits) {
+            int eq = entry.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected <type>=<burst>/<period>: " + entry);
+            this.userLimits.put(entry.substring(0, eq).trim(), Limit.parse(entry.substring(eq + 1)));
+        }
+        this.userLimits.putIfAbsent(DEFAULT_TYPE, Limit.parse("10/PT10M"));
+        this.globalLimit = Limit.parse(globalLimit).share(nodes);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Takes a token from the user's bucket and the global one, or throws with the time until the next. */
+    public void acquire(String username, String challengeType) {
+        Limit limit = userLimits.getOrDefault(challengeType, userLimits.get(DEFAULT_TYPE));
+        Bucket user = userBuckets.computeIfAbsent(username + ":" + challengeType, k -> new Bucket());
+        long now = System.nanoTime();
+
+        long wait = user.tryTake(limit, now);
+        if (wait > 0) {
+            rejected("user", challengeType).increment();
+            throw new TooManySubmissionsException("Too many submissions, slow down", Duration.ofNanos(wait));
+        }
+        wait = global.tryTake(globalLimit, now);
+        if (wait > 0) {
+            // The user's token bought nothing; hand it back
+            user.refund(limit);
+            rejected("global", challengeType).increment();
+            throw new TooManySubmissionsException("The grader is at capacity", Duration.ofNanos(wait));
+        }
+    }
+
+    /** Drops buckets that have refilled completely; they are indistinguishable from new ones. */
+    @Scheduled(fixedDelayString = "${app.rate-limit.cleanup-interval:PT10M}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        userBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private Counter rejected(String scope, String challengeType) {
+        return Counter.builder("grading.ratelimit.rejected")
+                .description("Submissions refused by the rate limiter")
+                .tag("scope", scope)
+                .tag("type", challengeType)
+                .register(meterRegistry);
+    }
+
+    record Limit(int burst, long intervalNanos) {
+        static Limit parse(String spec) {
+            int slash = spec.indexOf('/');
+            if (slash < 0) throw new IllegalArgumentException("Expected <burst>/<period>: " + spec);
+            int burst = Integer.parseInt(spec.substring(0, slash).trim());
+            Duration period = Duration.parse(spec.substring(slash + 1).trim());
+            if (burst < 1 || period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("Invalid rate limit: " + spec);
+            }
+            return new Limit(burst, period.toNanos() / burst);
+        }
+
+        /** This node's part of a limit shared by {@code nodes}: fewer tokens, refilled proportionally slower. */
+        Limit share(int nodes) {
+            if (nodes < 1) throw new IllegalArgumentException("Invalid node count: " + nodes);
+            return new Limit(Math.max(1, burst / nodes), intervalNanos * nodes);
+        }
+
+        long capacityNanos() {
+            return burst * intervalNanos;
+        }
+    }
+
+    /**
+     * GCRA cell. {@code tat} is when the bucket will be full again; a request fits if taking one
+     * more token does not push that more than {@code burst} intervals into the future.
+     */
+    static final class Bucket {
+        private final AtomicLong tat = new AtomicLong(System.nanoTime());
+
+        /** Returns 0 if a token was taken, otherwise the nanoseconds until one is available. */
+        long tryTake(Limit limit, long now) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + limit.intervalNanos();
+                long overshoot = next - now - limit.capacityNanos();
+                if (overshoot > 0) return overshoot;
+                if (tat.compareAndSet(current, next)) return 0;
+            }
+        }
+
+        void refund(Limit limit) {
+            tat.addAndGet(-limit.intervalNanos());
+        }
+
+        boolean isFull(long now) {
+            return tat.get() - now <= 0;
+        }
+    }
+}
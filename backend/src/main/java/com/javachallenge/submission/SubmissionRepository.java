@@ -1,11 +1,67 @@
 package com.javachallenge.submission;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public interface SubmissionRepository extends JpaRepository<Submission, UUID> {
-    List<Submission> findByUserIdOrderBySubmittedAtDesc(UUID userId);
+    @Query("""
+            select new com.javachallenge.submission.SubmissionSummaryDto(
+                   s.id, c.id, c.title, s.status, s.score, s.cached, s.submittedAt, s.completedAt)
+              from Submission s join s.challenge c
+             where s.user.id = :userId
+             order by s.submittedAt desc, s.id desc
+            """)
+    List<SubmissionSummaryDto> findHistory(UUID userId, Limit limit);
+
+    /** The page after a cursor, seeking on the (user_id, submitted_at, id) index. */
+    @Query("""
+            select new com.javachallenge.submission.SubmissionSummaryDto(
+                   s.id, c.id, c.title, s.status, s.score, s.cached, s.submittedAt, s.completedAt)
+              from Submission s join s.challenge c
+             where s.user.id = :userId
+               and (s.submittedAt, s.id) < (:submittedAt, :id)
+             order by s.submittedAt desc, s.id desc
+            """)
+    List<SubmissionSummaryDto> findHistoryBefore(UUID userId, Instant submittedAt, UUID id, Limit limit);
+
     List<Submission> findByChallengeIdOrderBySubmittedAtDesc(UUID challengeId);
     List<Submission> findByStatus(String status);
+
+    /** Latest graded submission with the same cache key; errors are never reused. */
+    Optional<Submission> findFirstByCacheKeyAndStatusInOrderByCompletedAtDesc(String cacheKey, Collection<String> statuses);
+
+    @Query(value = """
+            SELECT COUNT(*) AS "totalSubmissions",
+                   COUNT(*) FILTER (WHERE status = 'passed') AS "passed",
+                   COUNT(*) FILTER (WHERE status = 'failed') AS "failed",
+                   COALESCE(AVG(score), 0) AS "avgScore",
+                   COALESCE(MAX(score), 0) AS "bestScore",
+                   COUNT(DISTINCT challenge_id) FILTER (WHERE status = 'passed') AS "challengesSolved"
+              FROM submissions
+             WHERE user_id = :userId
+            """, nativeQuery = true)
+    UserStatsRow aggregateStats(UUID userId);
+
+    @Query("select distinct s.blobKey from Submission s where s.blobKey is not null")
+    Set<String> findLiveBlobKeys();
+
+    /** Lets the store reclaim uploads of submissions finished before the retention cutoff. */
+    @Transactional
+    @Modifying
+    @Query("update Submission s set s.blobKey = null where s.blobKey is not null and s.completedAt < :cutoff")
+    int releaseBlobsCompletedBefore(Instant cutoff);
+
+    @EntityGraph(attributePaths = "challenge")
+    Optional<Submission> findWithChallengeById(UUID id);
 }
@@ -1,15 +1,33 @@
 package com.javachallenge.submission;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.javachallenge.challenge.Challenge;
 import com.javachallenge.challenge.ChallengeService;
 import com.javachallenge.grader.GraderClient;
+import com.javachallenge.leaderboard.LeaderboardService;
+import com.javachallenge.storage.SubmissionStorage;
 import com.javachallenge.user.User;
 import com.javachallenge.user.UserService;
-import org.springframework.scheduling.annotation.Async;
+import com.javachallenge.zip.ZipContentHasher;
+import com.javachallenge.zip.ZipInspector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -23,142 +41,365 @@ public class SubmissionService {
     private final ChallengeService challengeService;
     private final UserService userService;
     private final GraderClient graderClient;
+    private final GradingJobQueue jobQueue;
+    private final GradingExecutor gradingExecutor;
+    private final SubmissionRateLimiter rateLimiter;
+    private final SubmissionLogChunkRepository logRepo;
+    private final SubmissionEventBus eventBus;
+    private final ObjectMapper objectMapper;
+    private final ZipContentHasher zipHasher;
+    private final ZipInspector zipInspector;
+    private final SubmissionStorage storage;
+    private final LeaderboardService leaderboardService;
+    private final TransactionTemplate transactionTemplate;
+    private final UserStatsCache statsCache;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final MeterRegistry meterRegistry;
+    private final Timer uploadPersist;
+    private final Timer resultPersist;
+    private final long maxUploadBytes;
 
-    public SubmissionService(SubmissionRepository repo, ChallengeService challengeService,
-                              UserService userService, GraderClient graderClient) {
+    public SubmissionService(SubmissionRepository repo, SubmissionLogChunkRepository logRepo,
+                              ChallengeService challengeService,
+                              UserService userService, GraderClient graderClient,
+                              GradingJobQueue jobQueue, GradingExecutor gradingExecutor,
+                              SubmissionRateLimiter rateLimiter,
+                              SubmissionEventBus eventBus, ObjectMapper objectMapper,
+                              ZipContentHasher zipHasher, ZipInspector zipInspector, SubmissionStorage storage,
+                              LeaderboardService leaderboardService, TransactionTemplate transactionTemplate,
+                              UserStatsCache statsCache, MeterRegistry meterRegistry,
+                              @Value("${app.submissions.max-upload-size:10MB}") DataSize maxUploadSize) {
         this.repo = repo;
+        this.logRepo = logRepo;
         this.challengeService = challengeService;
         this.userService = userService;
         this.graderClient = graderClient;
+        this.jobQueue = jobQueue;
+        this.gradingExecutor = gradingExecutor;
+        this.rateLimiter = rateLimiter;
+        this.eventBus = eventBus;
+        this.objectMapper = objectMapper;
+        this.zipHasher = zipHasher;
+        this.zipInspector = zipInspector;
+        this.storage = storage;
+        this.leaderboardService = leaderboardService;
+        this.transactionTemplate = transactionTemplate;
+        this.statsCache = statsCache;
+        this.cacheHits = Counter.builder("grading.cache").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("grading.cache").tag("result", "miss").register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+        this.uploadPersist = Timer.builder("grading.upload.persist")
+                .description("Hashing and storing an uploaded zip").register(meterRegistry);
+        this.resultPersist = Timer.builder("grading.result.persist")
+                .description("Saving a grading result and its leaderboard update").register(meterRegistry);
+        this.maxUploadBytes = maxUploadSize.toBytes();
     }
 
     public Submission createSubmission(UUID challengeId, String username, MultipartFile file)
             throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return createSubmission(challengeId, username, in, file.getSize());
+        }
+    }
+
+    /**
+     * Stores an upload read straight from the request body. The bytes are hashed and written to
+     * the storage volume in a single pass while no database connection is held: the challenge
+     * lookup before it is a read-only transaction of its own (open-in-view is off), and the
+     * submission is saved in one transaction afterwards. {@code declaredLength} (or -1) lets
+     * oversized uploads fail before anything is read.
+     */
+    public Submission createSubmission(UUID challengeId, String username, InputStream body, long declaredLength)
+            throws IOException {
         Challenge challenge = challengeService.findById(challengeId)
                 .orElseThrow(() -> new RuntimeException("Challenge not found"));
-        User user = userService.findByUsername(username);
+        rateLimiter.acquire(username, challenge.getChallengeType());
+        if (declaredLength > maxUploadBytes) throw new UploadTooLargeException(maxUploadBytes);
 
-        // Save file to temp storage
-        Path tempDir = Files.createTempDirectory("submission-");
-        Path zipPath = tempDir.resolve("submission.zip");
-        file.transferTo(zipPath);
+        // Stage the upload on the storage volume, hashing it on the way
+        Timer.Sample persist = Timer.start(meterRegistry);
+        Path staged = storage.newStagingFile();
+        ZipContentHasher.Hashes hashes;
+        try {
+            hashes = zipHasher.copyAndHash(new SizeLimitedInputStream(body, maxUploadBytes), staged);
+            zipInspector.inspect(staged);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(staged);
+            throw e;
+        }
+        String blobKey = storage.commit(staged, hashes.sha256());
+        persist.stop(uploadPersist);
+        String contentHash = hashes.contentHash();
+        String cacheKey = ZipContentHasher.sha256Hex(contentHash + "\n"
+                + ZipContentHasher.sha256Hex(challenge.getHiddenTestsJson()) + "\n"
+                + ZipContentHasher.sha256Hex(challenge.getCheckstyleRulesJson()) + "\n"
+                // Fast mode and Maven can disagree, e.g. on a project that only builds with its pom
+                + challenge.getGradingMode());
 
-        Submission submission = new Submission();
-        submission.setUser(user);
-        submission.setChallenge(challenge);
-        submission.setZipPath(zipPath.toString());
-        submission.setStatus("pending");
-        Submission saved = repo.save(submission);
+        return transactionTemplate.execute(status -> {
+            User user = userService.findByUsername(username);
+            Submission submission = new Submission();
+            submission.setUser(user);
+            submission.setChallenge(challenge);
+            submission.setBlobKey(blobKey);
+            submission.setContentHash(contentHash);
+            submission.setCacheKey(cacheKey);
+            submission.setStatus("pending");
+
+            statsCache.invalidate(user.getId());
+            Optional<Submission> previous = repo.findFirstByCacheKeyAndStatusInOrderByCompletedAtDesc(
+                    cacheKey, List.of("passed", "failed"));
+            if (previous.isPresent()) {
+                cacheHits.increment();
+                return completeFromCache(submission, previous.get());
+            }
+            cacheMisses.increment();
 
-        // Trigger grading asynchronously
-        gradeAsync(saved, challenge, zipPath);
+            gradingExecutor.admit();
+            Submission saved = repo.save(submission);
+
+            // Grading is picked up by a GradingWorker once this transaction commits
+            jobQueue.enqueue(saved.getId());
+            return saved;
+        });
+    }
+
+    /** Identical code against identical tests: reuse the earlier result instead of grading again. */
+    private Submission completeFromCache(Submission submission, Submission previous) {
+        submission.setStatus(previous.getStatus());
+        submission.setScore(previous.getScore());
+        submission.setVisibleTestsJson(previous.getVisibleTestsJson());
+        submission.setHiddenTestsJson(previous.getHiddenTestsJson());
+        submission.setCheckstyleViolationsJson(previous.getCheckstyleViolationsJson());
+        submission.setCached(true);
+        submission.setCompletedAt(Instant.now());
+        Submission saved = repo.save(submission);
+        recordLeaderboard(saved);
+        countOutcome(saved);
+        logRepo.copy(previous.getId(), saved.getId());
+        logRepo.append(saved.getId(), "[PHASE] Identical submission already graded, reused its result.\n");
         return saved;
     }
 
-    @Async
-    public void gradeAsync(Submission submission, Challenge challenge, Path zipPath) {
-        try {
-            submission.setStatus("running");
-            submission.setGraderLog("[PHASE] Initializing grading environment...\n");
-            repo.save(submission);
+    /**
+     * Runs the grader for a claimed job. Exceptions propagate so the worker can retry; a result
+     * from the grader is terminal. A result flagged as an error ends as {@code error}, never
+     * {@code failed}, so it is not reused as the cached verdict for identical code.
+     */
+    public void grade(UUID submissionId) {
+        Submission submission = repo.findWithChallengeById(submissionId)
+                .orElseThrow(() -> new RuntimeException("Submission not found: " + submissionId));
+        if (isTerminal(submission.getStatus())) return;
+        Challenge challenge = submission.getChallenge();
 
-            submission.setGraderLog(submission.getGraderLog() + "[PHASE] Sending submission to sandbox...\n");
-            repo.save(submission);
+        submission.setStatus("running");
+        saveAndPublishStatus(submission);
+        appendLog(submissionId, "[PHASE] Sending submission to sandbox...\n");
 
-            GraderClient.GraderResult result = graderClient.grade(
-                    zipPath, challenge.getHiddenTestsJson(), challenge.getCheckstyleRulesJson()
-            );
+        GraderClient.GraderResult result = graderClient.grade(submissionId,
+                upload(submission), challenge.getHiddenTestsJson(), challenge.getCheckstyleRulesJson(),
+                challenge.getGradingMode(), event -> onGradingEvent(submissionId, event)
+        );
 
-            submission.setGraderLog(submission.getGraderLog() + "[PHASE] Parsing test results...\n");
-            repo.save(submission);
+        if (result.error()) {
+            markErrored(submissionId, "The grader could not run this submission");
+            return;
+        }
+        appendLog(submissionId, "[PHASE] Grading complete.\n");
 
-            submission.setStatus(result.passed() ? "passed" : "failed");
-            submission.setScore(result.score());
-            submission.setVisibleTestsJson(result.visibleTestsJson());
-            submission.setHiddenTestsJson(result.hiddenTestsJson());
-            submission.setCheckstyleViolationsJson(result.checkstyleJson());
-            submission.setGraderLog(submission.getGraderLog() + "[PHASE] Grading complete.\n" + result.log());
-            submission.setCompletedAt(Instant.now());
-        } catch (Exception e) {
+        submission.setStatus(result.passed() ? "passed" : "failed");
+        submission.setScore(result.score());
+        submission.setVisibleTestsJson(result.visibleTestsJson());
+        submission.setHiddenTestsJson(result.hiddenTestsJson());
+        submission.setCheckstyleViolationsJson(result.checkstyleJson());
+        submission.setCompletedAt(Instant.now());
+        saveAndPublishCompletion(submission);
+    }
+
+    /**
+     * The upload, streamed from the blob store into the grader request (and reopened if the
+     * call is retried); rows from before the blob store still use zip_path.
+     */
+    private Resource upload(Submission submission) {
+        if (submission.getBlobKey() == null) return new FileSystemResource(submission.getZipPath());
+        String key = submission.getBlobKey();
+        if (!storage.exists(key)) throw new IllegalStateException("Submission upload unavailable: " + key);
+        return new AbstractResource() {
+            @Override
+            public String getDescription() { return "submission blob " + key; }
+
+            @Override
+            public String getFilename() { return "submission.zip"; }
+
+            @Override
+            public InputStream getInputStream() throws IOException { return storage.open(key); }
+
+            // Unknown for cold blobs; the default would read the whole stream to count it
+            @Override
+            public long contentLength() { return -1; }
+        };
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    public void markRetrying(UUID submissionId, String reason) {
+        repo.findById(submissionId).ifPresent(submission -> {
+            appendLog(submissionId, "[RETRY] " + reason + ", grading will be retried\n");
+            submission.setStatus("pending");
+            saveAndPublishStatus(submission);
+        });
+    }
+
+    public void markErrored(UUID submissionId, String reason) {
+        repo.findWithChallengeById(submissionId).ifPresent(submission -> {
+            if (isTerminal(submission.getStatus())) return;
+            appendLog(submissionId, "[ERROR] " + reason + "\n");
             submission.setStatus("error");
-            submission.setGraderLog((submission.getGraderLog() != null ? submission.getGraderLog() : "")
-                + "[ERROR] " + e.getMessage() + "\n");
+            submission.setCompletedAt(Instant.now());
+            saveAndPublishCompletion(submission);
+        });
+    }
+
+    /** Turns grader progress into log chunks as it streams in. */
+    private void onGradingEvent(UUID submissionId, GraderClient.GradingEvent event) {
+        switch (event.type()) {
+            case "phase" -> appendLog(submissionId, "started".equals(event.state())
+                    ? "[PHASE] " + event.label() + "...\n"
+                    : "[PHASE] " + event.label() + " finished in " + event.durationMs() + " ms\n");
+            case "log" -> appendLog(submissionId, event.text());
+            case "test" -> {
+                GraderClient.TestResult test = event.test();
+                appendLog(submissionId, "[TEST] " + (test.passed() ? "PASS " : "FAIL ")
+                        + (Boolean.TRUE.equals(event.hidden()) ? "(hidden) " : "") + test.name()
+                        + " (" + test.timeSeconds() + "s)\n");
+            }
+            default -> { }
         }
+    }
+
+    /** Appends one log chunk (a single-row insert, independent of the log size) and publishes it. */
+    private void appendLog(UUID submissionId, String text) {
+        int seq = logRepo.append(submissionId, text);
+        eventBus.publish(submissionId, SubmissionEvent.log(seq, text));
+    }
+
+    private void saveAndPublishStatus(Submission submission) {
         repo.save(submission);
+        eventBus.publish(submission.getId(), SubmissionEvent.status(submission.getStatus(), submission.getScore()));
+    }
+
+    private void saveAndPublishCompletion(Submission submission) {
+        resultPersist.record(() -> transactionTemplate.executeWithoutResult(tx -> {
+            repo.save(submission);
+            recordLeaderboard(submission);
+            statsCache.invalidate(submission.getUser().getId());
+        }));
+        countOutcome(submission);
+        eventBus.publish(submission.getId(), SubmissionEvent.status(submission.getStatus(), submission.getScore()));
+        try {
+            eventBus.publish(submission.getId(),
+                    SubmissionEvent.complete(objectMapper.writeValueAsString(SubmissionDto.from(submission))));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void countOutcome(Submission submission) {
+        Counter.builder("grading.outcomes")
+                .tag("challenge", submission.getChallenge().getId().toString())
+                .tag("outcome", submission.getStatus())
+                .tag("cached", String.valueOf(submission.isCached()))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void recordLeaderboard(Submission submission) {
+        if ("passed".equals(submission.getStatus()) && submission.getScore() != null) {
+            Challenge challenge = submission.getChallenge();
+            leaderboardService.recordPassed(submission.getUser().getId(), challenge.getId(), challenge.getTopicId(),
+                    submission.getId(), submission.getScore(), submission.getCompletedAt());
+        }
+    }
+
+    public List<SubmissionLogChunk> logChunks(UUID submissionId, int fromSeq) {
+        return logRepo.findBySubmissionIdAndSeqGreaterThanEqualOrderBySeq(submissionId, fromSeq);
     }
 
+    public List<SubmissionLogChunk> logChunks(UUID submissionId, int fromSeq, int limit) {
+        return logRepo.findBySubmissionIdAndSeqGreaterThanEqualOrderBySeq(submissionId, fromSeq, Limit.of(limit));
+    }
+
+    public Optional<Submission> findWithChallengeById(UUID id) {
+        return repo.findWithChallengeById(id);
+    }
+
+    static boolean isTerminal(String status) {
+        return "passed".equals(status) || "failed".equals(status) || "error".equals(status);
+    }
+
+    /** With its challenge loaded, which {@link SubmissionDto#from} reads outside any transaction. */
     public Optional<Submission> findById(UUID id) {
-        return repo.findById(id);
+        return repo.findWithChallengeById(id);
     }
 
-    public List<SubmissionDto> findByUsername(String username) {
+    /** Newest first; pass the previous page's {@code nextCursor} to continue. */
+    @Transactional(readOnly = true)
+    public SubmissionPage history(String username, String cursor, int limit) {
         User user = userService.findByUsername(username);
-        return repo.findByUserIdOrderBySubmittedAtDesc(user.getId())
-                .stream().map(SubmissionDto::from).toList();
+        // One extra row tells whether another page follows
+        Limit fetch = Limit.of(limit + 1);
+        List<SubmissionSummaryDto> rows;
+        if (cursor == null) {
+            rows = repo.findHistory(user.getId(), fetch);
+        } else {
+            String[] parts = decodeCursor(cursor);
+            rows = repo.findHistoryBefore(user.getId(), Instant.parse(parts[0]), UUID.fromString(parts[1]), fetch);
+        }
+        if (rows.size() <= limit) return new SubmissionPage(rows, null);
+        List<SubmissionSummaryDto> items = rows.subList(0, limit);
+        SubmissionSummaryDto last = items.get(limit - 1);
+        return new SubmissionPage(items, encodeCursor(last.submittedAt(), last.id()));
     }
 
-    public Map<String, Object> statsForUser(String username) {
-        User user = userService.findByUsername(username);
-        List<Submission> subs = repo.findByUserIdOrderBySubmittedAtDesc(user.getId());
-        long total = subs.size();
-        long passed = subs.stream().filter(s -> "passed".equals(s.getStatus())).count();
-        long failed = subs.stream().filter(s -> "failed".equals(s.getStatus())).count();
-        double avgScore = subs.stream()
-                .filter(s -> s.getScore() != null)
-                .mapToInt(Submission::getScore)
-                .average().orElse(0.0);
-        int bestScore = subs.stream()
-                .filter(s -> s.getScore() != null)
-                .mapToInt(Submission::getScore)
-                .max().orElse(0);
-        long uniqueChallengesSolved = subs.stream()
-                .filter(s -> "passed".equals(s.getStatus()))
-                .map(s -> s.getChallenge().getId())
-                .distinct().count();
-
-        return Map.of(
-            "totalSubmissions", total,
-            "passed", passed,
-            "failed", failed,
-            "avgScore", Math.round(avgScore * 10.0) / 10.0,
-            "bestScore", bestScore,
-            "challengesSolved", uniqueChallengesSolved
-        );
+    private static String encodeCursor(Instant submittedAt, UUID id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((submittedAt + "|" + id).getBytes(StandardCharsets.UTF_8));
     }
 
-    public List<Map<String, Object>> leaderboard() {
-        List<Submission> allPassed = repo.findByStatus("passed");
-        // Group by user, sum best scores per challenge
-        Map<UUID, List<Submission>> byUser = allPassed.stream()
-                .collect(java.util.stream.Collectors.groupingBy(s -> s.getUser().getId()));
-
-        List<Map<String, Object>> board = new ArrayList<>();
-        for (var entry : byUser.entrySet()) {
-            User user = entry.getValue().get(0).getUser();
-            // Best score per challenge
-            Map<UUID, Integer> bestPerChallenge = new HashMap<>();
-            for (Submission s : entry.getValue()) {
-                if (s.getScore() != null) {
-                    bestPerChallenge.merge(s.getChallenge().getId(), s.getScore(), Math::max);
-                }
-            }
-            int totalScore = bestPerChallenge.values().stream().mapToInt(i -> i).sum();
-            board.add(Map.of(
-                "username", user.getUsername(),
-                "avatarUrl", user.getAvatarUrl() != null ? user.getAvatarUrl() : "",
-                "totalScore", totalScore,
-                "challengesSolved", bestPerChallenge.size()
-            ));
-        }
-        // Sort by totalScore descending
-        board.sort((a, b) -> ((Integer)b.get("totalScore")).compareTo((Integer)a.get("totalScore")));
-        // Add rank
-        List<Map<String, Object>> ranked = new ArrayList<>();
-        for (int i = 0; i < board.size(); i++) {
-            Map<String, Object> e = new HashMap<>(board.get(i));
-            e.put("rank", i + 1);
-            ranked.add(e);
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 2) throw new IllegalArgumentException("Invalid cursor");
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
         }
-        return ranked;
+    }
+
+    /**
+     * Read from the primary, not the replica: the result is cached until the next invalidation,
+     * and a replica that has not yet replayed the submission that caused it would pin a stale
+     * value for the whole TTL.
+     */
+    @Transactional
+    public Map<String, Object> statsForUser(String username) {
+        User user = userService.findByUsername(username);
+        return statsCache.get(user.getId(), () -> {
+            UserStatsRow row = repo.aggregateStats(user.getId());
+            return Map.of(
+                "totalSubmissions", row.getTotalSubmissions(),
+                "passed", row.getPassed(),
+                "failed", row.getFailed(),
+                "avgScore", Math.round(row.getAvgScore() * 10.0) / 10.0,
+                "bestScore", row.getBestScore(),
+                "challengesSolved", row.getChallengesSolved()
+            );
+        });
     }
 }
@@ -0,0 +1,16 @@
+package com.javachallenge.submission;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** A row of the submission history; test and checkstyle details come from {@code GET /api/submissions/{id}}. */
+public record SubmissionSummaryDto(
+    UUID id,
+    UUID challengeId,
+    String challengeTitle,
+    String status,
+    Integer score,
+    boolean cached,
+    Instant submittedAt,
+    Instant completedAt
+) {}
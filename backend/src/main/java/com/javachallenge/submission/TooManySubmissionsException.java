@@ -0,0 +1,15 @@
+package com.javachallenge.submission;
+
+import java.time.Duration;
+
+/** Thrown when a submission cannot be admitted right now; mapped to 429 with Retry-After. */
+public class TooManySubmissionsException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public TooManySubmissionsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() { return retryAfter; }
+}
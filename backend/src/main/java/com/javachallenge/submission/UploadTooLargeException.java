@@ -0,0 +1,13 @@
+package com.javachallenge.submission;
+
+/** Thrown when an upload exceeds {@code app.submissions.max-upload-size}; mapped to 413. */
+public class UploadTooLargeException extends RuntimeException {
+    private final long limitBytes;
+
+    public UploadTooLargeException(long limitBytes) {
+        super("Upload exceeds the limit of " + limitBytes + " bytes");
+        this.limitBytes = limitBytes;
+    }
+
+    public long getLimitBytes() { return limitBytes; }
+}
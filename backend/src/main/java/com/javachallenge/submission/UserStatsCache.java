@@ -0,0 +1,57 @@
+package com.javachallenge.submission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Dashboard stats per user. Entries are dropped when one of the user's submissions is created
+ * or completes on this node; the TTL bounds staleness for changes made on other nodes.
+ */
+@Component
+public class UserStatsCache {
+
+    private record Entry(Map<String, Object> stats, Instant loadedAt) {}
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final int maxEntries;
+
+    public UserStatsCache(@Value("${app.stats.cache-ttl:PT30S}") Duration ttl,
+                          @Value("${app.stats.cache-max-entries:10000}") int maxEntries) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    public Map<String, Object> get(UUID userId, Supplier<Map<String, Object>> loader) {
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.loadedAt().plus(ttl).isAfter(Instant.now())) return entry.stats();
+        Map<String, Object> stats = loader.get();
+        // Crude bound: an occasional reload storm beats unbounded growth
+        if (entries.size() >= maxEntries) entries.clear();
+        entries.put(userId, new Entry(stats, Instant.now()));
+        return stats;
+    }
+
+    /** Drops the entry once the surrounding transaction commits, or now if there is none. */
+    public void invalidate(UUID userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(userId);
+                }
+            });
+        } else {
+            entries.remove(userId);
+        }
+    }
+}
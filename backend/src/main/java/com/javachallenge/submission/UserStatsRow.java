@@ -0,0 +1,11 @@
+package com.javachallenge.submission;
+
+/** Per-user submission aggregates, computed in one query. */
+public interface UserStatsRow {
+    long getTotalSubmissions();
+    long getPassed();
+    long getFailed();
+    double getAvgScore();
+    int getBestScore();
+    long getChallengesSolved();
+}
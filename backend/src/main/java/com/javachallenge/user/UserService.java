@@ -22,6 +22,7 @@ public class UserService {
         });
     }
 
+    @Transactional(readOnly = true)
     public User findByUsername(String username) {
         return repo.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
@@ -0,0 +1,114 @@
+package com.javachallenge.zip;
+
+import com.javachallenge.challenge.Challenge;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Challenge download bundles, built once per challenge version and kept on local disk. Keyed
+ * by {@link ZipBundleService#fingerprint}, so an edited challenge simply misses and rebuilds;
+ * least recently used bundles are evicted once {@code app.bundles.max-bytes} is exceeded.
+ *
+ * <p>An evicted file is only deleted by a later build, {@link #DELETE_DELAY} after its eviction:
+ * a download that got the bundle just before may not have opened it yet (sendfile opens it by
+ * name after the controller returns). Once opened, deleting it does not disturb the transfer.
+ */
+@Component
+public class BundleCache {
+
+    public record Bundle(Path file, long size, String etag) {}
+
+    private static final Duration DELETE_DELAY = Duration.ofMinutes(1);
+
+    private final ZipBundleService bundleService;
+    private final Path dir;
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Bundle> bundles = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, Instant> evicted = new HashMap<>();
+    private long totalBytes;
+
+    public BundleCache(ZipBundleService bundleService,
+                       @Value("${app.bundles.dir:${java.io.tmpdir}/challenge-bundles}") Path dir,
+                       @Value("${app.bundles.max-bytes:268435456}") long maxBytes) throws IOException {
+        this.bundleService = bundleService;
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        // Leftovers from a previous run are not tracked; start empty
+        try (Stream<Path> files = Files.list(this.dir)) {
+            for (Path file : files.toList()) Files.deleteIfExists(file);
+        }
+    }
+
+    public Bundle get(Challenge challenge) {
+        String fingerprint = bundleService.fingerprint(challenge);
+        lock.lock();
+        try {
+            Bundle bundle = bundles.get(fingerprint);
+            if (bundle != null) {
+                if (Files.exists(bundle.file())) return bundle;
+                totalBytes -= bundle.size();
+            }
+            deleteEvicted();
+            // Building takes milliseconds; one at a time keeps a download burst to a single build
+            bundle = build(challenge, fingerprint);
+            bundles.put(fingerprint, bundle);
+            totalBytes += bundle.size();
+            evict();
+            return bundle;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to build bundle for " + challenge.getId(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Bundle build(Challenge challenge, String fingerprint) throws IOException {
+        Path part = dir.resolve(UUID.randomUUID() + ".part");
+        try (OutputStream out = Files.newOutputStream(part)) {
+            bundleService.writeBundle(challenge, out);
+        }
+        Path file = dir.resolve(fingerprint + ".zip");
+        // Rebuilt after its eviction: the path is live again
+        evicted.remove(file);
+        Files.move(part, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new Bundle(file, Files.size(file), "\"" + fingerprint + "\"");
+    }
+
+    private void evict() {
+        Iterator<Bundle> eldest = bundles.values().iterator();
+        // Always keep the bundle just built
+        while (totalBytes > maxBytes && bundles.size() > 1) {
+            Bundle bundle = eldest.next();
+            eldest.remove();
+            totalBytes -= bundle.size();
+            evicted.put(bundle.file(), Instant.now());
+        }
+    }
+
+    private void deleteEvicted() throws IOException {
+        Instant cutoff = Instant.now().minus(DELETE_DELAY);
+        Iterator<Map.Entry<Path, Instant>> entries = evicted.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Path, Instant> entry = entries.next();
+            if (entry.getValue().isBefore(cutoff)) {
+                Files.deleteIfExists(entry.getKey());
+                entries.remove();
+            }
+        }
+    }
+}
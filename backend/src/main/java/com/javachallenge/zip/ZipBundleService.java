@@ -8,10 +8,36 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
 
 @Service
 public class ZipBundleService {
 
+    /** Bump when the generated files change so cached bundles are rebuilt. */
+    private static final String FORMAT_VERSION = "1";
+    /** Fixed entry timestamps keep bundles byte-identical across builds and nodes. */
+    private static final long ENTRY_TIME = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    /** Identifies the bundle a challenge produces: same fingerprint, same bytes. */
+    public String fingerprint(Challenge challenge) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String part : new String[] {FORMAT_VERSION, challenge.getTheme(), challenge.getTitle(),
+                challenge.getStory(), challenge.getRequirementsMd(), challenge.getLegacyCode(),
+                challenge.getTestSuiteCode(), challenge.getCheckstyleRulesJson()}) {
+            md.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(md.digest(), 0, 16);
+    }
+
     public void writeBundle(Challenge challenge, OutputStream out) throws IOException {
         String slug = challenge.getTheme().toLowerCase().replaceAll("[^a-z0-9]+", "-");
 
@@ -35,6 +61,7 @@ public class ZipBundleService {
         byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
         ZipArchiveEntry entry = new ZipArchiveEntry(name);
         entry.setSize(bytes.length);
+        entry.setTime(ENTRY_TIME);
         zip.putArchiveEntry(entry);
         zip.write(bytes);
         zip.closeArchiveEntry();
@@ -0,0 +1,140 @@
+package com.javachallenge.zip;
+
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Computes a content hash of a zip that ignores everything the grader ignores: entry order,
+ * timestamps, compression settings, directory entries, {@link ZipInspector#isJunk junk} entries
+ * and a single wrapping top-level folder. Two uploads with the same hash grade identically.
+ */
+@Component
+public class ZipContentHasher {
+
+    /** Normalized content hash, plus the SHA-256 of the raw bytes that identifies the stored blob. */
+    public record Hashes(String contentHash, String sha256) {}
+
+    private final ZipInspector inspector;
+
+    public ZipContentHasher(ZipInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    /**
+     * Copies {@code in} to {@code target} and hashes it, in one pass. Entries are inflated only
+     * as far as the inspector's limits allow, so a zip bomb is cut off rather than expanded.
+     */
+    public Hashes copyAndHash(InputStream in, Path target) throws IOException {
+        ZipInspector.Limits limits = inspector.limits();
+        Map<String, String> entryHashes = new TreeMap<>();
+        MessageDigest raw = sha256();
+        byte[] buffer = new byte[8192];
+        long inflated = 0;
+        int entries = 0;
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(target), raw);
+             TeeInputStream tee = new TeeInputStream(in, out);
+             ZipInputStream zis = new ZipInputStream(tee)) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (++entries > limits.maxEntries()) {
+                    throw new ZipRejectedException("Zip has more than " + limits.maxEntries() + " entries");
+                }
+                // Junk is dropped at the end, once the root it depends on is known
+                if (entry.isDirectory()) continue;
+                MessageDigest md = sha256();
+                for (int n; (n = zis.read(buffer)) > 0; ) {
+                    inflated += n;
+                    if (inflated > limits.maxUncompressedBytes()) {
+                        throw new ZipRejectedException("Zip expands to more than " + limits.maxUncompressedBytes() + " bytes");
+                    }
+                    md.update(buffer, 0, n);
+                }
+                entryHashes.put(entry.getName(), hex(md.digest()));
+            }
+            // Pass the central directory through to the copy as well
+            tee.transferTo(OutputStream.nullOutputStream());
+        }
+        return new Hashes(digest(projectFiles(entryHashes)), hex(raw.digest()));
+    }
+
+    public static String sha256Hex(String text) {
+        return hex(sha256().digest(text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** The entries without junk, keyed by their path below the common root. */
+    private Map<String, String> projectFiles(Map<String, String> entries) {
+        String root = inspector.commonRoot(entries.keySet());
+        Map<String, String> files = new TreeMap<>();
+        for (var e : entries.entrySet()) {
+            if (!ZipInspector.isJunk(e.getKey(), root)) files.put(e.getKey().substring(root.length()), e.getValue());
+        }
+        return files;
+    }
+
+    private static String digest(Map<String, String> entries) {
+        MessageDigest md = sha256();
+        for (var e : entries.entrySet()) {
+            md.update((e.getKey() + '\0' + e.getValue() + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        return hex(md.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    /** Copies every byte read from the wrapped stream to {@code copy}. */
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) copy.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) copy.write(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Route skips through read() so skipped bytes are still copied
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            int read = read(buf, 0, buf.length);
+            return Math.max(read, 0);
+        }
+    }
+}
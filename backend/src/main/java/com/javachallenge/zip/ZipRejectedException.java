@@ -0,0 +1,8 @@
+package com.javachallenge.zip;
+
+/** A submission zip that breaks {@link ZipInspector}'s limits; never worth grading. */
+public class ZipRejectedException extends RuntimeException {
+    public ZipRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,4 @@
+-- Keyset pagination of a user's history on (submitted_at, id); this also covers the
+-- plain user_id lookups the old index served.
+CREATE INDEX idx_submissions_user_history ON submissions(user_id, submitted_at DESC, id DESC);
+DROP INDEX idx_submissions_user;
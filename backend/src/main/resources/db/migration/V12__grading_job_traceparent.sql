@@ -0,0 +1,2 @@
+-- W3C traceparent of the upload request, so the asynchronous grading run joins its trace
+ALTER TABLE grading_jobs ADD COLUMN traceparent VARCHAR(55);
@@ -0,0 +1,8 @@
+-- How the grader builds a submission: 'maven' runs the project's own build, 'fast' compiles
+-- with javac and runs the JUnit launcher directly (single-module, JUnit-only projects)
+ALTER TABLE challenges ADD COLUMN grading_mode VARCHAR(10) NOT NULL DEFAULT 'maven'
+    CHECK (grading_mode IN ('maven', 'fast'));
+
+-- The 6 topic challenges are one BadCode.java plus tests
+UPDATE challenges SET grading_mode = 'fast'
+WHERE challenge_type = 'refactor' AND seed_id IS NULL AND NOT ai_generated;
@@ -0,0 +1,8 @@
+-- Last log chunk seq per submission. Appending bumps it under the submission's row lock, so
+-- concurrent appenders (a retry racing a stale worker) cannot pick the same seq.
+ALTER TABLE submissions ADD COLUMN log_seq INTEGER NOT NULL DEFAULT 0;
+
+UPDATE submissions s
+SET log_seq = c.max_seq
+FROM (SELECT submission_id, MAX(seq) AS max_seq FROM submission_log_chunks GROUP BY submission_id) c
+WHERE c.submission_id = s.id;
@@ -0,0 +1,22 @@
+-- Durable grading queue: one job per submission, claimed by workers with
+-- SELECT ... FOR UPDATE SKIP LOCKED and held under an expiring lease.
+CREATE TABLE grading_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    submission_id UUID NOT NULL UNIQUE REFERENCES submissions(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'queued' CHECK (status IN ('queued','running','done','dead')),
+    attempts SMALLINT NOT NULL DEFAULT 0,
+    max_attempts SMALLINT NOT NULL DEFAULT 3,
+    run_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    locked_by VARCHAR(200),
+    locked_until TIMESTAMPTZ,
+    last_error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_grading_jobs_queued ON grading_jobs(run_at) WHERE status = 'queued';
+CREATE INDEX idx_grading_jobs_lease ON grading_jobs(locked_until) WHERE status = 'running';
+
+-- Re-queue anything that was in flight under the old in-process grading
+INSERT INTO grading_jobs (submission_id)
+SELECT id FROM submissions WHERE status IN ('pending', 'running');
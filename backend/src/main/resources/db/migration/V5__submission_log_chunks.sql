@@ -0,0 +1,16 @@
+-- Grader output is stored as append-only, sequence-numbered chunks instead of
+-- rewriting submissions.grader_log on every phase.
+CREATE TABLE submission_log_chunks (
+    submission_id UUID NOT NULL REFERENCES submissions(id) ON DELETE CASCADE,
+    seq INTEGER NOT NULL,
+    content TEXT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (submission_id, seq)
+);
+
+INSERT INTO submission_log_chunks (submission_id, seq, content, created_at)
+SELECT id, 1, grader_log, COALESCE(completed_at, submitted_at)
+FROM submissions
+WHERE grader_log IS NOT NULL AND grader_log <> '';
+
+ALTER TABLE submissions DROP COLUMN grader_log;
@@ -0,0 +1,9 @@
+-- Identical re-submissions reuse an earlier grading result. content_hash is the
+-- SHA-256 of the normalized zip contents; cache_key also covers the challenge's
+-- hidden tests and checkstyle rules.
+ALTER TABLE submissions ADD COLUMN content_hash VARCHAR(64);
+ALTER TABLE submissions ADD COLUMN cache_key VARCHAR(64);
+ALTER TABLE submissions ADD COLUMN cached BOOLEAN NOT NULL DEFAULT false;
+
+CREATE INDEX idx_submissions_cache_key ON submissions(cache_key, completed_at DESC)
+    WHERE status IN ('passed', 'failed');
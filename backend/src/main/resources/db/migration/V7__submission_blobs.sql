@@ -0,0 +1,4 @@
+-- Uploads live in the content-addressed submission store; zip_path is only kept
+-- for rows that still point at node-local temp files.
+ALTER TABLE submissions ADD COLUMN blob_key VARCHAR(64);
+CREATE INDEX idx_submissions_blob_key ON submissions(blob_key) WHERE blob_key IS NOT NULL;
@@ -0,0 +1,31 @@
+-- Leaderboard read model, maintained whenever a submission passes instead of being
+-- aggregated from every passed submission on each request.
+CREATE TABLE user_challenge_best (
+    user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    challenge_id UUID NOT NULL REFERENCES challenges(id) ON DELETE CASCADE,
+    best_score INTEGER NOT NULL,
+    submission_id UUID NOT NULL,
+    achieved_at TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (user_id, challenge_id)
+);
+
+CREATE TABLE user_totals (
+    user_id UUID PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    total_score INTEGER NOT NULL DEFAULT 0,
+    challenges_solved INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_user_totals_rank ON user_totals(total_score DESC, user_id);
+
+INSERT INTO user_challenge_best (user_id, challenge_id, best_score, submission_id, achieved_at)
+SELECT DISTINCT ON (user_id, challenge_id)
+       user_id, challenge_id, score, id, COALESCE(completed_at, submitted_at)
+FROM submissions
+WHERE status = 'passed' AND score IS NOT NULL
+ORDER BY user_id, challenge_id, score DESC, completed_at;
+
+INSERT INTO user_totals (user_id, total_score, challenges_solved)
+SELECT user_id, SUM(best_score), COUNT(*)
+FROM user_challenge_best
+GROUP BY user_id;
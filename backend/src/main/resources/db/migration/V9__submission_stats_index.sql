@@ -0,0 +1,2 @@
+-- Covers the per-user stats aggregate so it is answered from the index alone.
+CREATE INDEX idx_submissions_user_stats ON submissions(user_id, status, challenge_id, score);
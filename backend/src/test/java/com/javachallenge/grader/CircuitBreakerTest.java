@@ -0,0 +1,81 @@
+package com.javachallenge.grader;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofHours(1));
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.isCallPermitted());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofHours(1));
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void expiredOpenBreakerLetsOneTrialThrough() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertTrue(breaker.isCallPermitted());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.isCallPermitted());
+    }
+
+    @Test
+    void successfulTrialCloses() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedTrialReopens() {
+        CircuitBreaker breaker = new CircuitBreaker(5, Duration.ofMillis(50));
+        for (int i = 0; i < 5; i++) breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+        sleep(Duration.ofMillis(60));
+        assertTrue(breaker.tryAcquire());
+
+        // A single failure in half-open re-opens, regardless of the threshold
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.javachallenge.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedBoardTest {
+
+    private static final UUID C1 = UUID.randomUUID();
+    private static final UUID C2 = UUID.randomUUID();
+
+    @Test
+    void ranksUsersByTheirSumOfBestScores() {
+        RankedBoard board = new RankedBoard();
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        UUID carol = UUID.randomUUID();
+        board.record(alice, C1, 50);
+        board.record(alice, C2, 40);
+        board.record(bob, C1, 80);
+        board.record(carol, C1, 100);
+
+        assertEquals(List.of(
+                new LeaderboardIndex.Standing(1, carol, 100, 1),
+                new LeaderboardIndex.Standing(2, alice, 90, 2),
+                new LeaderboardIndex.Standing(3, bob, 80, 1)), board.top(10));
+        assertEquals(List.of(new LeaderboardIndex.Standing(1, carol, 100, 1)), board.top(1));
+        assertEquals(3, board.size());
+    }
+
+    @Test
+    void keepsTheBestScorePerChallenge() {
+        RankedBoard board = new RankedBoard();
+        UUID alice = UUID.randomUUID();
+        board.record(alice, C1, 50);
+        board.record(alice, C1, 30);
+        assertEquals(50, board.standing(alice).orElseThrow().score());
+
+        board.record(alice, C1, 70);
+        board.record(alice, C2, 10);
+        assertEquals(new LeaderboardIndex.Standing(1, alice, 80, 2), board.standing(alice).orElseThrow());
+    }
+
+    @Test
+    void ordersTiesByUnsignedUuidBytesLikePostgres() {
+        RankedBoard board = new RankedBoard();
+        UUID low = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        // Negative as a signed long, so UUID.compareTo would put it first
+        UUID high = UUID.fromString("ffffffff-0000-0000-0000-000000000000");
+        board.record(high, C1, 60);
+        board.record(low, C1, 60);
+
+        assertEquals(List.of(low, high), board.top(2).stream().map(LeaderboardIndex.Standing::userId).toList());
+        assertEquals(1, board.standing(low).orElseThrow().rank());
+        assertEquals(2, board.standing(high).orElseThrow().rank());
+    }
+
+    @Test
+    void returnsNeighboursAroundAUser() {
+        RankedBoard board = new RankedBoard();
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UUID user = UUID.randomUUID();
+            users.add(user);
+            board.record(user, C1, 100 - i * 10);
+        }
+
+        assertEquals(List.of(2, 3, 4), board.around(users.get(2), 1).stream().map(LeaderboardIndex.Standing::rank).toList());
+        assertEquals(List.of(1, 2, 3), board.around(users.get(0), 2).stream().map(LeaderboardIndex.Standing::rank).toList());
+        assertEquals(List.of(4, 5), board.around(users.get(4), 1).stream().map(LeaderboardIndex.Standing::rank).toList());
+        assertEquals(List.of(), board.around(UUID.randomUUID(), 1));
+        assertTrue(board.standing(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void growsPastTheInitialScoreRange() {
+        RankedBoard board = new RankedBoard();
+        UUID small = UUID.randomUUID();
+        UUID large = UUID.randomUUID();
+        board.record(small, C1, 10);
+        board.record(large, C1, 5000);
+
+        assertEquals(1, board.standing(large).orElseThrow().rank());
+        assertEquals(2, board.standing(small).orElseThrow().rank());
+    }
+
+    @Test
+    void matchesANaiveSortOfRandomResults() {
+        Random random = new Random(42);
+        RankedBoard board = new RankedBoard();
+        List<UUID> users = new ArrayList<>();
+        List<UUID> challenges = new ArrayList<>();
+        for (int i = 0; i < 300; i++) users.add(UUID.randomUUID());
+        for (int i = 0; i < 12; i++) challenges.add(UUID.randomUUID());
+        Map<UUID, Map<UUID, Integer>> bests = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            UUID user = users.get(random.nextInt(users.size()));
+            UUID challenge = challenges.get(random.nextInt(challenges.size()));
+            // Coarse scores, so there are plenty of ties
+            int score = random.nextInt(11) * 10;
+            board.record(user, challenge, score);
+            bests.computeIfAbsent(user, u -> new HashMap<>()).merge(challenge, score, Math::max);
+        }
+
+        Map<UUID, Integer> totals = new HashMap<>();
+        bests.forEach((user, scores) -> totals.put(user, scores.values().stream().mapToInt(Integer::intValue).sum()));
+        List<UUID> expected = totals.keySet().stream()
+                .sorted(Comparator.comparing((UUID u) -> totals.get(u)).reversed().thenComparing(RankedBoard.SQL_UUID_ORDER))
+                .toList();
+
+        List<LeaderboardIndex.Standing> top = board.top(expected.size());
+        assertEquals(expected, top.stream().map(LeaderboardIndex.Standing::userId).toList());
+        for (int i = 0; i < expected.size(); i++) {
+            UUID user = expected.get(i);
+            assertEquals(new LeaderboardIndex.Standing(i + 1, user, totals.get(user), bests.get(user).size()),
+                    board.standing(user).orElseThrow());
+        }
+    }
+}
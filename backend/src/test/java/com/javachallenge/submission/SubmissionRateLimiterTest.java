@@ -0,0 +1,123 @@
+package com.javachallenge.submission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubmissionRateLimiterTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void bucketTakesUpToItsBurstThenReportsTheWait() {
+        SubmissionRateLimiter.Limit limit = SubmissionRateLimiter.Limit.parse("3/PT3S");
+        SubmissionRateLimiter.Bucket bucket = new SubmissionRateLimiter.Bucket();
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) assertEquals(0, bucket.tryTake(limit, now));
+        assertEquals(SECOND, bucket.tryTake(limit, now));
+        // A refused request takes nothing
+        assertEquals(SECOND, bucket.tryTake(limit, now));
+    }
+
+    @Test
+    void bucketRefillsOneTokenPerInterval() {
+        SubmissionRateLimiter.Limit limit = SubmissionRateLimiter.Limit.parse("3/PT3S");
+        SubmissionRateLimiter.Bucket bucket = new SubmissionRateLimiter.Bucket();
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) bucket.tryTake(limit, now);
+
+        assertEquals(0, bucket.tryTake(limit, now + SECOND));
+        assertTrue(bucket.tryTake(limit, now + SECOND) > 0);
+    }
+
+    @Test
+    void refundGivesATokenBack() {
+        SubmissionRateLimiter.Limit limit = SubmissionRateLimiter.Limit.parse("2/PT2S");
+        SubmissionRateLimiter.Bucket bucket = new SubmissionRateLimiter.Bucket();
+        long now = System.nanoTime();
+        bucket.tryTake(limit, now);
+        bucket.tryTake(limit, now);
+
+        bucket.refund(limit);
+        assertEquals(0, bucket.tryTake(limit, now));
+    }
+
+    @Test
+    void bucketIsFullOnlyOnceEveryTokenIsBack() {
+        SubmissionRateLimiter.Limit limit = SubmissionRateLimiter.Limit.parse("3/PT3S");
+        SubmissionRateLimiter.Bucket bucket = new SubmissionRateLimiter.Bucket();
+        long now = System.nanoTime();
+        assertTrue(bucket.isFull(now));
+
+        bucket.tryTake(limit, now);
+        bucket.tryTake(limit, now);
+        assertFalse(bucket.isFull(now + SECOND));
+        assertTrue(bucket.isFull(now + 2 * SECOND));
+    }
+
+    @Test
+    void parsesAndValidatesLimits() {
+        assertEquals(new SubmissionRateLimiter.Limit(10, Duration.ofMinutes(1).toNanos()),
+                SubmissionRateLimiter.Limit.parse("10/PT10M"));
+        assertThrows(IllegalArgumentException.class, () -> SubmissionRateLimiter.Limit.parse("10"));
+        assertThrows(IllegalArgumentException.class, () -> SubmissionRateLimiter.Limit.parse("0/PT1M"));
+        assertThrows(IllegalArgumentException.class, () -> SubmissionRateLimiter.Limit.parse("5/PT0S"));
+    }
+
+    @Test
+    void sharesAGlobalLimitAcrossNodes() {
+        SubmissionRateLimiter.Limit limit = SubmissionRateLimiter.Limit.parse("120/PT10M");
+
+        SubmissionRateLimiter.Limit share = limit.share(4);
+        assertEquals(30, share.burst());
+        assertEquals(limit.capacityNanos(), share.capacityNanos());
+        assertEquals(1, limit.share(500).burst());
+        assertThrows(IllegalArgumentException.class, () -> limit.share(0));
+    }
+
+    @Test
+    void rejectsAUserOverTheirLimit() {
+        SubmissionRateLimiter limiter = limiter("default=2/PT1H", "100/PT1H");
+        limiter.acquire("alice", "refactor");
+        limiter.acquire("alice", "refactor");
+
+        TooManySubmissionsException e = assertThrows(TooManySubmissionsException.class,
+                () -> limiter.acquire("alice", "refactor"));
+        assertEquals("Too many submissions, slow down", e.getMessage());
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofMinutes(29)) > 0);
+        // Other users and challenge types have their own buckets
+        limiter.acquire("bob", "refactor");
+        limiter.acquire("alice", "debug");
+    }
+
+    @Test
+    void globalRejectionRefundsTheUsersToken() {
+        SubmissionRateLimiter limiter = limiter("default=1/PT1H", "1/PT1H");
+        limiter.acquire("alice", "refactor");
+
+        // Bob's only token is handed back each time, so he keeps hitting the global limit, not his own
+        for (int i = 0; i < 2; i++) {
+            TooManySubmissionsException e = assertThrows(TooManySubmissionsException.class,
+                    () -> limiter.acquire("bob", "refactor"));
+            assertEquals("The grader is at capacity", e.getMessage());
+        }
+    }
+
+    @Test
+    void evictionKeepsBucketsThatAreStillRefilling() {
+        SubmissionRateLimiter limiter = limiter("default=1/PT1H", "100/PT1H");
+        limiter.acquire("alice", "refactor");
+
+        limiter.evictIdle();
+        assertThrows(TooManySubmissionsException.class, () -> limiter.acquire("alice", "refactor"));
+    }
+
+    private static SubmissionRateLimiter limiter(String perUser, String global) {
+        return new SubmissionRateLimiter(List.of(perUser), global, 1, new SimpleMeterRegistry());
+    }
+}
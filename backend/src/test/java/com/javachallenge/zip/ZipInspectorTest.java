@@ -0,0 +1,153 @@
+package com.javachallenge.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipInspectorTest {
+
+    @TempDir
+    Path dir;
+
+    private final ZipInspector inspector = new ZipInspector(DataSize.ofKilobytes(512), 10, 100,
+            List.of("pom.xml", "src/**"));
+
+    @Test
+    void acceptsAProjectInAWrappingFolderAndSkipsJunk() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("project/pom.xml", text("<project/>"));
+        entries.put("project/src/main/java/BadCode.java", text("class BadCode {}"));
+        entries.put("project/target/classes/BadCode.class", text("not checked"));
+        entries.put("__MACOSX/project/._pom.xml", text("not checked"));
+        entries.put("project/.DS_Store", text("not checked"));
+
+        assertDoesNotThrow(() -> inspector.inspect(zip(entries)));
+    }
+
+    @Test
+    void keepsAnAllowedFolderAsTheRoot() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("src/main/java/Main.java", text("class Main {}"));
+        entries.put("src/test/java/MainTest.java", text("class MainTest {}"));
+
+        assertEquals("", inspector.commonRoot(entries.keySet()));
+        assertEquals("project/", inspector.commonRoot(List.of("project/pom.xml", "project/src/Main.java")));
+        assertDoesNotThrow(() -> inspector.inspect(zip(entries)));
+    }
+
+    @Test
+    void rejectsFilesOutsideTheAllowedPaths() {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("pom.xml", text("<project/>"));
+        entries.put("run.sh", text("rm -rf /"));
+
+        assertRejected(entries, "Unexpected file in zip: run.sh");
+    }
+
+    @Test
+    void rejectsPathsThatEscapeTheProject() {
+        assertRejected(Map.of("../pom.xml", text("<project/>")), "Illegal path in zip: ../pom.xml");
+        assertRejected(Map.of("src\\Main.java", text("class Main {}")), "Illegal path in zip");
+    }
+
+    @Test
+    void rejectsTooManyEntries() {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 11; i++) entries.put("src/File" + i + ".java", text("class File" + i + " {}"));
+
+        assertRejected(entries, "Zip has 11 entries, the limit is 10");
+    }
+
+    @Test
+    void rejectsZipsThatExpandBeyondTheLimit() {
+        byte[] noise = new byte[300 * 1024];
+        new Random(1).nextBytes(noise);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("pom.xml", text("<project/>"));
+        entries.put("src/a.bin", noise);
+        entries.put("src/b.bin", noise);
+
+        assertRejected(entries, "Zip expands to more than");
+    }
+
+    @Test
+    void rejectsSuspiciousCompressionRatios() {
+        assertRejected(Map.of("pom.xml", text("<project/>"), "src/zeros.txt", new byte[256 * 1024]),
+                "Suspicious compression ratio for src/zeros.txt");
+    }
+
+    @Test
+    void toleratesHighRatiosInSmallFiles() {
+        assertDoesNotThrow(() -> inspector.inspect(zip(Map.of("pom.xml", text("<project/>"),
+                "src/blank.txt", new byte[32 * 1024]))));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotZips() throws IOException {
+        Path file = Files.writeString(dir.resolve("submission.zip"), "not a zip");
+
+        ZipRejectedException e = assertThrows(ZipRejectedException.class, () -> inspector.inspect(file));
+        assertTrue(e.getMessage().startsWith("Not a valid zip"), e.getMessage());
+    }
+
+    @Test
+    void recognisesJunkEntries() {
+        assertTrue(ZipInspector.isJunk("__MACOSX/project/._pom.xml", "project/"));
+        assertTrue(ZipInspector.isJunk("project/src/.DS_Store", "project/"));
+        assertTrue(ZipInspector.isJunk("project/target/classes/BadCode.class", "project/"));
+        assertTrue(ZipInspector.isJunk("target/surefire-reports/TEST-x.xml", ""));
+        assertFalse(ZipInspector.isJunk("project/src/main/java/Target.java", "project/"));
+        assertFalse(ZipInspector.isJunk("project/pom.xml", "project/"));
+    }
+
+    @Test
+    void keepsSourcesInATargetPackage() throws IOException {
+        String source = "project/src/main/java/com/acme/target/Foo.java";
+        assertFalse(ZipInspector.isJunk(source, "project/"));
+        assertFalse(ZipInspector.isJunk("src/main/java/target/Foo.java", ""));
+        assertTrue(ZipInspector.isJunk("project/target/Foo.class", "project/"));
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("project/pom.xml", text("<project/>"));
+        entries.put(source, text("package com.acme.target; class Foo {}"));
+        entries.put("project/run/target/payload.sh", text("rm -rf /"));
+
+        // Were target folders skipped everywhere, this stray file would have slipped through too
+        assertRejected(entries, "Unexpected file in zip: run/target/payload.sh");
+    }
+
+    private void assertRejected(Map<String, byte[]> entries, String message) {
+        ZipRejectedException e = assertThrows(ZipRejectedException.class, () -> inspector.inspect(zip(entries)));
+        assertTrue(e.getMessage().startsWith(message), e.getMessage());
+    }
+
+    private Path zip(Map<String, byte[]> entries) throws IOException {
+        Path file = Files.createTempFile(dir, "submission", ".zip");
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static byte[] text(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
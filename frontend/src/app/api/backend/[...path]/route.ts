@@ -16,12 +16,17 @@ async function proxy(req: NextRequest, ctx: Ctx): Promise<NextResponse | Respons
   const forwardHeaders: Record<string, string> = {};
   const cookie = req.headers.get("cookie");
   if (cookie) forwardHeaders["cookie"] = cookie;
+  const lastEventId = req.headers.get("last-event-id");
+  if (lastEventId) forwardHeaders["last-event-id"] = lastEventId;
+  const ifNoneMatch = req.headers.get("if-none-match");
+  if (ifNoneMatch) forwardHeaders["if-none-match"] = ifNoneMatch;
 
-  let body: ArrayBuffer | undefined;
+  // Stream request bodies (uploads) through instead of buffering them here
+  let body: ReadableStream<Uint8Array> | null = null;
   if (req.method !== "GET" && req.method !== "HEAD") {
     const ct = req.headers.get("content-type");
     if (ct) forwardHeaders["content-type"] = ct;
-    body = await req.arrayBuffer();
+    body = req.body;
   }
 
   const upstream = await fetch(target, {
@@ -29,7 +34,9 @@ async function proxy(req: NextRequest, ctx: Ctx): Promise<NextResponse | Respons
     headers: forwardHeaders,
     body,
     redirect: "manual",
-  });
+    // Required by Node's fetch for streaming request bodies
+    ...(body ? { duplex: "half" } : {}),
+  } as RequestInit);
 
   // Backend redirects to OAuth when unauthenticated — return 401 instead
   if (upstream.status >= 300 && upstream.status < 400) {
@@ -57,6 +64,16 @@ async function proxy(req: NextRequest, ctx: Ctx): Promise<NextResponse | Respons
   if (cd) resHeaders["content-disposition"] = cd;
   const sc = upstream.headers.get("set-cookie");
   if (sc) resHeaders["set-cookie"] = sc;
+  const ra = upstream.headers.get("retry-after");
+  if (ra) resHeaders["retry-after"] = ra;
+  const etag = upstream.headers.get("etag");
+  if (etag) resHeaders["etag"] = etag;
+  const cc = upstream.headers.get("cache-control");
+  if (cc) resHeaders["cache-control"] = cc;
+
+  if (upstream.status === 304) {
+    return new NextResponse(null, { status: 304, headers: resHeaders });
+  }
 
   const responseBody = await upstream.arrayBuffer();
   return new NextResponse(responseBody, {
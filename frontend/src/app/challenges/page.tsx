@@ -1,5 +1,5 @@
 import { fetchChallenges } from "@/lib/api";
-import { CATEGORIES, getChallengeType, type Challenge } from "@/types";
+import { CATEGORIES, getChallengeType, type ChallengeSummary } from "@/types";
 import { difficultyBadge, challengeTypeConfig } from "@/lib/utils";
 import Link from "next/link";
 
@@ -7,13 +7,13 @@ import Link from "next/link";
 export const dynamic = "force-dynamic";
 
 interface Props {
-  searchParams: Promise<{ category?: string }>;
+  searchParams: Promise<{ category?: string; cursor?: string }>;
 }
 
 export default async function ChallengesPage({ searchParams }: Props) {
-  const { category } = await searchParams;
+  const { category, cursor } = await searchParams;
   const topicId = category ? parseInt(category) : undefined;
-  const challenges = await fetchChallenges(topicId);
+  const { items: challenges, nextCursor } = await fetchChallenges({ topic: topicId, cursor });
 
   return (
     <div className="max-w-7xl mx-auto px-6 py-12">
@@ -22,7 +22,7 @@ export default async function ChallengesPage({ searchParams }: Props) {
           <span className="text-primary">~/</span>challenges
         </h1>
         <p className="text-muted font-mono text-sm">
-          {challenges.length} challenge{challenges.length !== 1 ? "s" : ""} available
+          {challenges.length} challenge{challenges.length !== 1 ? "s" : ""} {cursor ? "on this page" : "available"}
         </p>
       </div>
 
@@ -58,7 +58,7 @@ export default async function ChallengesPage({ searchParams }: Props) {
         </div>
       ) : (
         <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-6">
-          {challenges.map((c: Challenge) => {
+          {challenges.map((c: ChallengeSummary) => {
             const type = c.challengeType || getChallengeType(c);
             const typeConf = challengeTypeConfig(type);
             return (
@@ -83,7 +83,7 @@ export default async function ChallengesPage({ searchParams }: Props) {
                 <h3 className="font-mono font-semibold text-foreground group-hover:text-primary transition-colors mb-2">
                   {c.title}
                 </h3>
-                <p className="text-sm text-muted leading-relaxed line-clamp-3 flex-1">{c.story}</p>
+                <p className="text-sm text-muted leading-relaxed line-clamp-3 flex-1">{c.excerpt}</p>
                 <div className="mt-4 pt-4 border-t border-primary/10">
                   <span className="text-xs font-mono text-muted">{c.theme}</span>
                 </div>
@@ -92,6 +92,17 @@ export default async function ChallengesPage({ searchParams }: Props) {
           })}
         </div>
       )}
+
+      {nextCursor && (
+        <div className="mt-8 text-center">
+          <Link
+            href={`/challenges?${new URLSearchParams({ ...(category ? { category } : {}), cursor: nextCursor })}`}
+            className="inline-block px-4 py-2 rounded-lg font-mono text-sm border border-primary/20 text-muted hover:border-primary/50 transition-all"
+          >
+            More challenges →
+          </Link>
+        </div>
+      )}
     </div>
   );
 }
@@ -1,4 +1,4 @@
-import { fetchCurrentUser, fetchMyStats, fetchMySubmissions, fetchLeaderboard } from "@/lib/server-api";
+import { fetchCurrentUser, fetchMyStats, fetchMySubmissions, fetchLeaderboard, fetchMyRank } from "@/lib/server-api";
 import Image from "next/image";
 import Link from "next/link";
 import {
@@ -54,10 +54,11 @@ export default async function DashboardPage() {
     );
   }
 
-  const [stats, submissions, leaderboard] = await Promise.all([
+  const [stats, history, leaderboard, myRank] = await Promise.all([
     fetchMyStats(),
-    fetchMySubmissions(),
+    fetchMySubmissions(20),
     fetchLeaderboard(),
+    fetchMyRank(),
   ]);
 
   const s = stats ?? { totalSubmissions: 0, passed: 0, failed: 0, avgScore: 0, bestScore: 0, challengesSolved: 0 };
@@ -118,7 +119,7 @@ export default async function DashboardPage() {
           <h2 className="font-mono font-semibold text-foreground mb-4 flex items-center gap-2">
             <ClipboardList className="w-5 h-5 text-primary" /> Recent Submissions
           </h2>
-          {submissions.length === 0 ? (
+          {history.items.length === 0 ? (
             <div className="text-center py-12">
               <Send className="w-10 h-10 text-muted/40 mx-auto mb-4" />
               <p className="text-muted font-mono text-sm">No submissions yet</p>
@@ -126,7 +127,7 @@ export default async function DashboardPage() {
             </div>
           ) : (
             <div className="space-y-2 max-h-[400px] overflow-y-auto pr-1">
-              {submissions.slice(0, 20).map((sub) => (
+              {history.items.map((sub) => (
                 <Link
                   key={sub.id}
                   href={`/challenges/${sub.challengeId}`}
@@ -158,6 +159,9 @@ export default async function DashboardPage() {
         <div className="lg:col-span-2 glass rounded-xl p-6">
           <h2 className="font-mono font-semibold text-foreground mb-4 flex items-center gap-2">
             <Trophy className="w-5 h-5 text-amber-400" /> Leaderboard
+            {myRank?.rank && (
+              <span className="ml-auto text-xs text-muted font-normal">Your rank: #{myRank.rank}</span>
+            )}
           </h2>
           {leaderboard.length === 0 ? (
             <div className="text-center py-12">
@@ -22,6 +22,8 @@ function classifyLine(raw: string): LogLine {
   const timestamp = Date.now();
   if (text.startsWith("[PHASE]")) return { type: "phase", text: text.replace("[PHASE] ", ""), timestamp };
   if (text.startsWith("[ERROR]")) return { type: "error", text: text.replace("[ERROR] ", ""), timestamp };
+  if (text.startsWith("[TEST] FAIL")) return { type: "error", text: text.replace("[TEST] ", ""), timestamp };
+  if (text.startsWith("[TEST]")) return { type: "test", text: text.replace("[TEST] ", ""), timestamp };
   if (text.includes("Tests run:") && text.includes("Failures:")) return { type: "test", text, timestamp };
   if (text.includes("BUILD SUCCESS")) return { type: "success", text, timestamp };
   if (text.includes("BUILD FAILURE")) return { type: "error", text, timestamp };
@@ -1,4 +1,4 @@
-import type { Challenge, Submission, User } from "@/types";
+import type { Challenge, ChallengePage, Submission, SubmissionPage, User } from "@/types";
 
 export function getApiBase(): string {
   if (typeof window === "undefined") {
@@ -11,15 +11,22 @@ export function getApiBase(): string {
   return "/api/backend";
 }
 
-export async function fetchChallenges(topic?: number): Promise<Challenge[]> {
+export async function fetchChallenges(
+  filter: { topic?: number; difficulty?: string; type?: string; cursor?: string } = {},
+): Promise<ChallengePage> {
+  const empty: ChallengePage = { items: [], nextCursor: null };
+  const params = new URLSearchParams();
+  if (filter.topic) params.set("topic", String(filter.topic));
+  if (filter.difficulty) params.set("difficulty", filter.difficulty);
+  if (filter.type) params.set("type", filter.type);
+  if (filter.cursor) params.set("cursor", filter.cursor);
   try {
-    const base = getApiBase();
-    const url = topic ? `${base}/challenges?topic=${topic}` : `${base}/challenges`;
-    const res = await fetch(url, { cache: "no-store" });
-    if (!res.ok) return [];
+    const query = params.toString();
+    const res = await fetch(`${getApiBase()}/challenges${query ? `?${query}` : ""}`, { cache: "no-store" });
+    if (!res.ok) return empty;
     return res.json();
   } catch {
-    return [];
+    return empty;
   }
 }
 
@@ -34,15 +41,24 @@ export async function fetchChallenge(id: string): Promise<Challenge | null> {
 }
 
 export async function submitSolution(challengeId: string, file: File): Promise<Submission> {
-  const form = new FormData();
-  form.append("challengeId", challengeId);
-  form.append("file", file);
-  const res = await fetch(`${getApiBase()}/submissions`, {
+  // Raw zip body: the backend streams it straight into storage without multipart parsing
+  const params = new URLSearchParams({ challengeId });
+  const res = await fetch(`${getApiBase()}/submissions?${params}`, {
     method: "POST",
-    body: form,
+    headers: { "content-type": "application/zip" },
+    body: file,
     credentials: "include",
   });
   if (res.status === 401) throw new Error("Please sign in to submit solutions");
+  if (res.status === 413) throw new Error("The zip is too large to submit");
+  if (res.status === 422) {
+    const body = await res.json().catch(() => null);
+    throw new Error(body?.message ?? "The zip was rejected");
+  }
+  if (res.status === 429) {
+    const retryAfter = res.headers.get("retry-after");
+    throw new Error(`The grader is busy, please try again in ${retryAfter ?? "a few"} seconds`);
+  }
   if (!res.ok) throw new Error(`Submission failed (${res.status})`);
   return res.json();
 }
@@ -65,15 +81,18 @@ export async function fetchCurrentUser(): Promise<User | null> {
   }
 }
 
-export async function fetchMySubmissions(): Promise<Submission[]> {
+export async function fetchMySubmissions(cursor?: string, limit = 20): Promise<SubmissionPage> {
+  const empty: SubmissionPage = { items: [], nextCursor: null };
+  const params = new URLSearchParams({ limit: String(limit) });
+  if (cursor) params.set("cursor", cursor);
   try {
-    const res = await fetch(`${getApiBase()}/submissions/my`, {
+    const res = await fetch(`${getApiBase()}/submissions/my?${params}`, {
       credentials: "include",
       cache: "no-store",
     });
-    if (!res.ok) return [];
+    if (!res.ok) return empty;
     return res.json();
   } catch {
-    return [];
+    return empty;
   }
 }
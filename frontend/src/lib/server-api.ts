@@ -3,7 +3,7 @@
  * This file imports "next/headers" — do NOT import it from Client Components.
  */
 import { cookies } from "next/headers";
-import type { User, UserStats, Submission, LeaderboardEntry } from "@/types";
+import type { User, UserStats, SubmissionPage, LeaderboardEntry, MyRank } from "@/types";
 import { getApiBase } from "@/lib/api";
 
 async function serverCookieHeader(): Promise<HeadersInit> {
@@ -43,24 +43,25 @@ export async function fetchMyStats(): Promise<UserStats | null> {
   }
 }
 
-export async function fetchMySubmissions(): Promise<Submission[]> {
+export async function fetchMySubmissions(limit = 20): Promise<SubmissionPage> {
+  const empty: SubmissionPage = { items: [], nextCursor: null };
   try {
     const headers = await serverCookieHeader();
-    const res = await fetch(`${getApiBase()}/submissions/my`, {
+    const res = await fetch(`${getApiBase()}/submissions/my?limit=${limit}`, {
       headers,
       cache: "no-store",
     });
-    if (!res.ok) return [];
+    if (!res.ok) return empty;
     return res.json();
   } catch {
-    return [];
+    return empty;
   }
 }
 
 export async function fetchLeaderboard(): Promise<LeaderboardEntry[]> {
   try {
     const headers = await serverCookieHeader();
-    const res = await fetch(`${getApiBase()}/submissions/leaderboard`, {
+    const res = await fetch(`${getApiBase()}/leaderboard`, {
       headers,
       cache: "no-store",
     });
@@ -70,3 +71,17 @@ export async function fetchLeaderboard(): Promise<LeaderboardEntry[]> {
     return [];
   }
 }
+
+export async function fetchMyRank(): Promise<MyRank | null> {
+  try {
+    const headers = await serverCookieHeader();
+    const res = await fetch(`${getApiBase()}/leaderboard/me`, {
+      headers,
+      cache: "no-store",
+    });
+    if (!res.ok) return null;
+    return res.json();
+  } catch {
+    return null;
+  }
+}
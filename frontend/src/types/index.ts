@@ -11,6 +11,23 @@ export interface Challenge {
   createdAt: string;
 }
 
+export interface ChallengeSummary {
+  id: string;
+  topicId: number;
+  title: string;
+  theme: string;
+  difficulty: Challenge["difficulty"];
+  challengeType: Challenge["challengeType"];
+  excerpt: string | null;
+  aiGenerated: boolean;
+  createdAt: string;
+}
+
+export interface ChallengePage {
+  items: ChallengeSummary[];
+  nextCursor: string | null;
+}
+
 export interface Submission {
   id: string;
   challengeId: string;
@@ -20,10 +37,27 @@ export interface Submission {
   visibleTestsJson: string | null;
   hiddenTestsJson: string | null;
   checkstyleViolationsJson: string | null;
+  cached: boolean;
   submittedAt: string;
   completedAt: string | null;
 }
 
+export interface SubmissionSummary {
+  id: string;
+  challengeId: string;
+  challengeTitle: string;
+  status: Submission["status"];
+  score: number | null;
+  cached: boolean;
+  submittedAt: string;
+  completedAt: string | null;
+}
+
+export interface SubmissionPage {
+  items: SubmissionSummary[];
+  nextCursor: string | null;
+}
+
 export interface User {
   username: string;
   avatarUrl: string;
@@ -46,7 +80,7 @@ export const CATEGORIES: Record<number, Category> = {
   6: { name: "Collections Mastery", description: "Maps, sets, iteration patterns, and null safety" },
 };
 
-export function getChallengeType(challenge: Challenge): ChallengeType {
+export function getChallengeType(challenge: Pick<Challenge, "challengeType">): ChallengeType {
   return challenge.challengeType || "refactor";
 }
 
@@ -66,3 +100,9 @@ export interface LeaderboardEntry {
   challengesSolved: number;
   rank: number;
 }
+
+export interface MyRank {
+  rank: number | null;
+  totalScore: number;
+  neighbors: LeaderboardEntry[];
+}
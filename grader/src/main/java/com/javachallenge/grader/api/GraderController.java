@@ -1,41 +1,43 @@
 package com.javachallenge.grader.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.javachallenge.grader.docker.DockerSandbox;
+import com.javachallenge.grader.grading.GradingEventSink;
+import com.javachallenge.grader.grading.GradingPipeline;
+import com.javachallenge.grader.grading.GradingRuns;
 import com.javachallenge.grader.model.*;
-import com.javachallenge.grader.parser.CheckstyleParser;
-import com.javachallenge.grader.parser.SurefireParser;
-import com.javachallenge.grader.score.ScoreCalculator;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.*;
-import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
 
 @RestController
 @RequestMapping("/internal")
 public class GraderController {
 
-    private final DockerSandbox sandbox;
-    private final SurefireParser surefireParser;
-    private final CheckstyleParser checkstyleParser;
-    private final ScoreCalculator scoreCalculator;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final GradingPipeline pipeline;
+    private final GradingRuns runs;
     private final ObjectMapper objectMapper;
+    private final Tracer tracer;
     private final Path workBaseDir;
 
-    public GraderController(DockerSandbox sandbox, SurefireParser surefireParser,
-                             CheckstyleParser checkstyleParser, ScoreCalculator scoreCalculator,
-                             ObjectMapper objectMapper,
+    public GraderController(GradingPipeline pipeline, GradingRuns runs, ObjectMapper objectMapper, Tracer tracer,
                              @org.springframework.beans.factory.annotation.Value("${grader.work-dir:/tmp}") String workDir) {
-        this.sandbox = sandbox;
-        this.surefireParser = surefireParser;
-        this.checkstyleParser = checkstyleParser;
-        this.scoreCalculator = scoreCalculator;
+        this.pipeline = pipeline;
+        this.runs = runs;
         this.objectMapper = objectMapper;
+        this.tracer = tracer;
         this.workBaseDir = Path.of(workDir);
         try { Files.createDirectories(this.workBaseDir); } catch (Exception ignored) {}
     }
@@ -44,98 +46,119 @@ public class GraderController {
     public ResponseEntity<GraderResult> grade(
             @RequestParam MultipartFile zip,
             @RequestParam(defaultValue = "[]") String hiddenTests,
-            @RequestParam(defaultValue = "{}") String checkstyleRules) {
+            @RequestParam(defaultValue = "{}") String checkstyleRules,
+            @RequestParam(defaultValue = "maven") String mode) {
 
         Path workDir = null;
         try {
             workDir = Files.createTempDirectory(workBaseDir, "grader-");
-            extractZip(zip, workDir);
-
-            // Handle nested directory: if pom.xml is inside a single subdirectory, use that
-            workDir = resolveProjectRoot(workDir);
-
-            injectHiddenTests(workDir, hiddenTests);
-
-            // Run in Docker
-            DockerSandbox.ExecutionResult execution = sandbox.runMavenTests(workDir);
-
-            // Parse results
-            Path surefireDir = workDir.resolve("target/surefire-reports");
-            Path checkstyleXml = workDir.resolve("target/checkstyle-result.xml");
-
-            List<TestResult> allTests = surefireParser.parse(surefireDir);
-            List<CheckstyleViolation> violations = checkstyleParser.parse(checkstyleXml);
+            Path zipFile = workDir.resolve("submission.zip");
+            zip.transferTo(zipFile.toFile());
 
-            // Split visible vs hidden tests by name convention
-            List<TestResult> visibleTests = allTests.stream()
-                    .filter(t -> !t.name().contains("Hidden")).toList();
-            List<TestResult> hiddenTestResults = allTests.stream()
-                    .filter(t -> t.name().contains("Hidden")).toList();
-
-            int score = scoreCalculator.calculate(visibleTests, hiddenTestResults, violations,
-                    hiddenTests != null && !hiddenTests.equals("[]"));
-            boolean passed = score >= 60 && execution.exitCode() == 0;
-
-            return ResponseEntity.ok(new GraderResult(
-                    passed,
-                    score,
-                    objectMapper.writeValueAsString(visibleTests),
-                    objectMapper.writeValueAsString(hiddenTestResults),
-                    objectMapper.writeValueAsString(violations),
-                    execution.output()
-            ));
+            StringBuilder log = new StringBuilder();
+            GraderResult result = pipeline.grade(zipFile, workDir, hiddenTests, mode, event -> {
+                if ("log".equals(event.type())) log.append(event.text());
+            });
+            return ResponseEntity.ok(new GraderResult(result.passed(), result.score(), result.visibleTestsJson(),
+                    result.hiddenTestsJson(), result.checkstyleJson(), log.toString(), result.error()));
 
         } catch (Exception e) {
             return ResponseEntity.ok(new GraderResult(
-                    false, 0, "[]", "[]", "[]", "Grader error: " + e.getMessage()
+                    false, 0, "[]", "[]", "[]", "Grader error: " + e.getMessage(), true
             ));
         } finally {
             if (workDir != null) deleteDirectory(workDir.toFile());
         }
     }
 
-    private void extractZip(MultipartFile zip, Path dest) throws Exception {
-        try (ZipInputStream zis = new ZipInputStream(zip.getInputStream())) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                Path target = dest.resolve(entry.getName()).normalize();
-                if (!target.startsWith(dest)) throw new SecurityException("Zip path traversal!");
-                if (entry.isDirectory()) {
-                    Files.createDirectories(target);
-                } else {
-                    Files.createDirectories(target.getParent());
-                    Files.copy(zis, target, StandardCopyOption.REPLACE_EXISTING);
-                }
-                zis.closeEntry();
-            }
+    /**
+     * Streaming variant of {@link #grade}: responds with newline-delimited JSON
+     * {@link GradingEvent}s as grading progresses, ending with a {@code result} event.
+     */
+    @PostMapping(value = "/grade/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> gradeStream(
+            @RequestParam MultipartFile zip,
+            @RequestParam(defaultValue = "[]") String hiddenTests,
+            @RequestParam(defaultValue = "{}") String checkstyleRules,
+            @RequestParam(defaultValue = "maven") String mode,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) throws IOException {
+
+        // Move the upload out before returning: multipart temp files do not outlive the request thread.
+        // Parts are spooled into the work dir, so the File overload is a rename, not a copy.
+        Path workDir = Files.createTempDirectory(workBaseDir, "grader-");
+        Path zipFile = workDir.resolve("submission.zip");
+        try {
+            zip.transferTo(zipFile.toFile());
+        } catch (IOException e) {
+            deleteDirectory(workDir.toFile());
+            throw e;
         }
+
+        // The body is written on an async thread; keep the grading spans under this request's span
+        Span requestSpan = tracer.currentSpan();
+        StreamingResponseBody body = out -> {
+            try (Tracer.SpanInScope ignored = tracer.withSpan(requestSpan)) {
+                run(idempotencyKey, zipFile, workDir, hiddenTests, mode, new NdjsonSink(out));
+            } catch (Exception e) {
+                throw new IOException("Grading failed", e);
+            } finally {
+                deleteDirectory(workDir.toFile());
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
-    private void injectHiddenTests(Path workDir, String hiddenTestsJson) throws Exception {
-        // Hidden tests JSON is an array of {className, code} objects
-        // Inject each into the test directory
-        if (hiddenTestsJson == null || hiddenTestsJson.equals("[]")) return;
-        var tests = objectMapper.readTree(hiddenTestsJson);
-        Path testDir = workDir.resolve("src/test/java/com/challenge");
-        Files.createDirectories(testDir);
-        for (var test : tests) {
-            String className = test.get("className").asText();
-            String code = test.get("code").asText();
-            Files.writeString(testDir.resolve(className + ".java"), code);
+    /**
+     * Grades the submission unless a run with the same idempotency key is in progress or finished
+     * recently, in which case that run's result is reported instead.
+     */
+    private GraderResult run(String idempotencyKey, Path zipFile, Path workDir, String hiddenTests,
+                             String mode, GradingEventSink sink) throws Exception {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return pipeline.grade(zipFile, workDir, hiddenTests, mode, sink);
+        }
+        CompletableFuture<GraderResult> own = new CompletableFuture<>();
+        CompletableFuture<GraderResult> existing = runs.begin(idempotencyKey, own);
+        if (existing != null) {
+            sink.emit(GradingEvent.log("Attaching to an earlier grading attempt of this submission\n"));
+            GraderResult result = existing.get();
+            sink.emit(GradingEvent.result(result));
+            return result;
+        }
+        try {
+            GraderResult result = pipeline.grade(zipFile, workDir, hiddenTests, mode, sink);
+            own.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
         }
     }
 
-    /** If pom.xml is inside a single nested directory, return that directory. */
-    private Path resolveProjectRoot(Path extractDir) throws Exception {
-        if (Files.exists(extractDir.resolve("pom.xml"))) return extractDir;
-        try (var entries = Files.list(extractDir)) {
-            List<Path> children = entries.toList();
-            if (children.size() == 1 && Files.isDirectory(children.get(0))
-                    && Files.exists(children.get(0).resolve("pom.xml"))) {
-                return children.get(0);
+    /** Writes one event per line and flushes it immediately; stops writing once the client is gone. */
+    private class NdjsonSink implements GradingEventSink {
+        private final OutputStream out;
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean broken;
+
+        NdjsonSink(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void emit(GradingEvent event) {
+            lock.lock();
+            try {
+                if (broken) return;
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                broken = true;
+            } finally {
+                lock.unlock();
             }
         }
-        return extractDir;
     }
 
     private void deleteDirectory(File dir) {
@@ -0,0 +1,78 @@
+package com.javachallenge.grader.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Watches JFR's {@code jdk.VirtualThreadPinned} events: a virtual thread that blocks inside a
+ * {@code synchronized} block or native frame holds its carrier, which caps concurrency at the
+ * carrier count. Each pinning site is logged once with its stack; all are timed.
+ */
+@Component
+@ConditionalOnProperty(name = "grader.diagnostics.pinned-threads.enabled", havingValue = "true", matchIfMissing = true)
+public class PinnedThreadMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Duration threshold;
+    private final Timer pinned;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(@Value("${grader.diagnostics.pinned-threads.threshold:20ms}") Duration threshold,
+                               MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads spent pinned to their carrier while blocked")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            stream = new RecordingStream();
+            stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(EVENT, this::onPinned);
+            stream.startAsync();
+        } catch (RuntimeException e) {
+            // JFR can be unavailable (e.g. stripped runtimes); the service works without it
+            log.warn("Pinned virtual thread monitoring unavailable: {}", e.getMessage());
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        if (event.getStackTrace() == null) return;
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        String site = frames.stream().limit(LOGGED_FRAMES)
+                .map(f -> f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber())
+                .collect(Collectors.joining("\n    at "));
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned for {} ms:\n    at {}", event.getDuration().toMillis(), site);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) stream.close();
+    }
+}
@@ -0,0 +1,292 @@
+package com.javachallenge.grader.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Pre-started sandbox containers that idle on {@code tail -f /dev/null} until a build is
+ * exec'd in them. Each has its own host directory mounted at {@code /workspace}, so a job's
+ * project is moved in and out by rename. After every job the container is reset (stray
+ * processes killed, {@code /tmp} cleared); it is discarded instead after a suspicious exit,
+ * a failed reset or {@code grader.pool.max-jobs-per-container} jobs.
+ *
+ * <p>Containers are reused across users, so their root filesystem is read-only: a job can only
+ * write to its workspace, the Maven cache and a tmpfs {@code /tmp}, and cannot tamper with the
+ * JDK, Maven or its settings that later jobs run with.
+ */
+@Component
+public class ContainerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ContainerPool.class);
+    private static final String LABEL = "javachallenge.sandbox-pool";
+    private static final long MEMORY_LIMIT = 512 * 1024 * 1024L; // 512 MB
+    /**
+     * {@code stop} kills everything but init ({@code tail}) and waits until only zombies are left.
+     * The state is read from /proc/PID/status, where a process cannot forge it through its name
+     * the way it could in /proc/PID/stat.
+     */
+    private static final String STOP_FUNCTIONS = """
+            alive() { for p in /proc/[0-9]*; do pid=${p#/proc/}; \
+            { [ "$pid" = 1 ] || [ "$pid" = $$ ]; } && continue; \
+            while read -r key value _; do [ "$key" = State: ] && { [ "$value" = Z ] || return 0; break; }; \
+            done < "$p/status" 2>/dev/null; done; return 1; }; \
+            stop() { for i in 1 2 3 4 5 6 7 8 9 10; do kill -9 -1 2>/dev/null; alive || return 0; sleep 0.1; done; \
+            return 1; }""";
+    private static final String KILL_SCRIPT = STOP_FUNCTIONS + "; stop";
+    private static final String RESET_SCRIPT = STOP_FUNCTIONS + "; stop && { rm -rf /tmp/* /tmp/.[!.]* 2>/dev/null; true; }";
+
+    /** A pooled container; held by one job at a time between {@link #lease} and {@link #release}. */
+    static final class PooledContainer {
+        private final String id;
+        private final Path workspace;
+        private int jobs;
+
+        private PooledContainer(String id, Path workspace) {
+            this.id = id;
+            this.workspace = workspace;
+        }
+
+        String id() { return id; }
+
+        /** Host side of {@code /workspace}. */
+        Path workspace() { return workspace; }
+    }
+
+    private final DockerClient docker;
+    private final SandboxImage image;
+    private final Path poolDir;
+    private final int minSize;
+    private final int maxJobs;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Semaphore leases;
+    private final BlockingDeque<PooledContainer> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReentrantLock maintainLock = new ReentrantLock();
+    private final MeterRegistry meterRegistry;
+    private boolean orphansRemoved;
+
+    public ContainerPool(DockerClient docker, SandboxImage image, MeterRegistry meterRegistry,
+                         @Value("${grader.work-dir:/tmp}") String workDir,
+                         @Value("${grader.pool.min-size:1}") int minSize,
+                         @Value("${grader.pool.max-size:4}") int maxSize,
+                         @Value("${grader.pool.max-jobs-per-container:20}") int maxJobs) {
+        this.docker = docker;
+        this.image = image;
+        this.poolDir = Path.of(workDir, "sandbox-pool").toAbsolutePath();
+        this.minSize = Math.min(minSize, maxSize);
+        this.maxJobs = maxJobs;
+        this.leases = new Semaphore(maxSize);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("grader.pool.size", size, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("grader.pool.idle", idle, BlockingDeque::size).register(meterRegistry);
+    }
+
+    /** Takes an idle container, or starts one (a cold start) if none is idle and the pool has room. */
+    PooledContainer lease(Duration timeout) throws Exception {
+        if (!leases.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("No sandbox container became free within " + timeout);
+        }
+        try {
+            PooledContainer container;
+            while ((container = idle.pollFirst()) != null) {
+                if (isRunning(container)) {
+                    leaseCounter("hit").increment();
+                    return container;
+                }
+                destroy(container, "dead");
+            }
+            leaseCounter("cold").increment();
+            return start();
+        } catch (Exception e) {
+            leases.release();
+            throw e;
+        }
+    }
+
+    /** Returns a container after a job; {@code clean} is false if the job ended in a way that may have tainted it. */
+    void release(PooledContainer container, boolean clean) {
+        try {
+            container.jobs++;
+            String discard = !clean ? "suspicious-exit"
+                    : container.jobs >= maxJobs ? "max-jobs"
+                    : !reset(container) ? "reset-failed"
+                    : null;
+            if (discard != null) {
+                destroy(container, discard);
+            } else {
+                // Most recently used first: the warmest container takes the next job
+                idle.offerFirst(container);
+            }
+        } finally {
+            leases.release();
+        }
+    }
+
+    /**
+     * Kills whatever a job left running in the container, so nothing outlives the exec that
+     * started it (a background process could otherwise rewrite the reports graded next).
+     */
+    void killStrays(String containerId) throws Exception {
+        if (!runScript(containerId, KILL_SCRIPT)) {
+            throw new IllegalStateException("Could not stop leftover processes in sandbox container " + containerId);
+        }
+    }
+
+    /** Drops idle containers that died and tops the pool up to its minimum size. */
+    @Scheduled(fixedDelayString = "${grader.pool.health-check-interval:PT30S}")
+    public void maintain() {
+        if (!image.isReady() || !maintainLock.tryLock()) return;
+        try {
+            if (!orphansRemoved) {
+                removeOrphans();
+                orphansRemoved = true;
+            }
+            for (PooledContainer container : List.copyOf(idle)) {
+                if (!isRunning(container) && idle.remove(container)) destroy(container, "dead");
+            }
+            while (size.get() < minSize && leases.tryAcquire()) {
+                try {
+                    idle.offerLast(start());
+                } finally {
+                    leases.release();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Sandbox pool maintenance failed: {}", e.getMessage());
+        } finally {
+            maintainLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PooledContainer container;
+        while ((container = idle.pollFirst()) != null) destroy(container, "shutdown");
+    }
+
+    private PooledContainer start() throws IOException {
+        Path workspace = Files.createDirectories(poolDir.resolve(UUID.randomUUID().toString()));
+        HostConfig hostConfig = HostConfig.newHostConfig()
+                .withMemory(MEMORY_LIMIT)
+                .withCpuCount(1L)
+                .withReadonlyRootfs(true)
+                .withTmpFs(Map.of("/tmp", "rw,exec,nosuid,nodev,size=256m"))
+                .withBinds(
+                        new Bind(workspace.toString(), new Volume("/workspace"), AccessMode.rw),
+                        new Bind("javachallenge-m2-cache", new Volume("/root/.m2/repository"), AccessMode.rw)
+                );
+        String id = null;
+        try {
+            id = docker.createContainerCmd(image.name())
+                    // Bypass the image's entrypoint, which writes into /root/.m2 on the root filesystem
+                    .withEntrypoint("tail", "-f", "/dev/null")
+                    .withWorkingDir("/workspace")
+                    .withLabels(Map.of(LABEL, instanceId))
+                    .withHostConfig(hostConfig)
+                    .exec()
+                    .getId();
+            docker.startContainerCmd(id).exec();
+        } catch (RuntimeException e) {
+            if (id != null) removeQuietly(id);
+            deleteRecursively(workspace);
+            throw e;
+        }
+        size.incrementAndGet();
+        return new PooledContainer(id, workspace);
+    }
+
+    private boolean reset(PooledContainer container) {
+        try {
+            deleteContents(container.workspace());
+            return runScript(container.id(), RESET_SCRIPT);
+        } catch (Exception e) {
+            log.warn("Resetting sandbox container {} failed: {}", container.id(), e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean runScript(String containerId, String script) throws InterruptedException {
+        String execId = docker.execCreateCmd(containerId)
+                .withCmd("sh", "-c", script)
+                .exec()
+                .getId();
+        ResultCallback.Adapter<Frame> done = docker.execStartCmd(execId).exec(new ResultCallback.Adapter<>());
+        if (!done.awaitCompletion(30, TimeUnit.SECONDS)) return false;
+        Long exitCode = docker.inspectExecCmd(execId).exec().getExitCodeLong();
+        return exitCode != null && exitCode == 0;
+    }
+
+    private void destroy(PooledContainer container, String reason) {
+        removeQuietly(container.id());
+        deleteRecursively(container.workspace());
+        size.decrementAndGet();
+        Counter.builder("grader.pool.recycled").tag("reason", reason).register(meterRegistry).increment();
+    }
+
+    private boolean isRunning(PooledContainer container) {
+        try {
+            Boolean running = docker.inspectContainerCmd(container.id()).exec().getState().getRunning();
+            return Boolean.TRUE.equals(running);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** Pool containers left behind by an earlier grader process that did not shut down cleanly. */
+    private void removeOrphans() {
+        for (Container orphan : docker.listContainersCmd().withShowAll(true)
+                .withLabelFilter(List.of(LABEL)).exec()) {
+            if (!instanceId.equals(orphan.getLabels().get(LABEL))) removeQuietly(orphan.getId());
+        }
+    }
+
+    private void removeQuietly(String containerId) {
+        try {
+            docker.removeContainerCmd(containerId).withForce(true).exec();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private Counter leaseCounter(String result) {
+        return Counter.builder("grader.pool.leases").tag("result", result).register(meterRegistry);
+    }
+
+    private static void deleteContents(Path dir) throws IOException {
+        try (Stream<Path> children = Files.list(dir)) {
+            for (Path child : children.toList()) deleteRecursively(child);
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+        }
+    }
+}
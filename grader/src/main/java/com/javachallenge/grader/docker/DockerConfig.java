@@ -0,0 +1,37 @@
+package com.javachallenge.grader.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.zerodep.ZerodepDockerHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * One Docker client for the whole process. It is thread-safe and pools its connections to the
+ * daemon; each sandbox run holds two of them (log follow and wait) for its whole duration.
+ * Nothing connects until the first command, so the grader starts without a daemon.
+ */
+@Configuration
+public class DockerConfig {
+
+    @Bean(destroyMethod = "close")
+    public DockerClient dockerClient(@Value("${grader.docker.host:unix:///var/run/docker.sock}") String host,
+                                     @Value("${grader.docker.max-connections:50}") int maxConnections,
+                                     @Value("${grader.docker.response-timeout:PT5M}") Duration responseTimeout) {
+        DefaultDockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder()
+                .withDockerHost(host)
+                .build();
+        ZerodepDockerHttpClient httpClient = new ZerodepDockerHttpClient.Builder()
+                .dockerHost(URI.create(host))
+                .maxConnections(maxConnections)
+                .connectionTimeout(Duration.ofSeconds(30))
+                .responseTimeout(responseTimeout)
+                .build();
+        return DockerClientImpl.getInstance(config, httpClient);
+    }
+}
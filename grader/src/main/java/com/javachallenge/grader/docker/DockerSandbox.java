@@ -1,94 +1,335 @@
 package com.javachallenge.grader.docker;
 
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.command.CreateContainerResponse;
-import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientImpl;
-import com.github.dockerjava.zerodep.ZerodepDockerHttpClient;
+import com.github.dockerjava.api.async.ResultCallbackTemplate;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
-import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Component
 public class DockerSandbox {
 
-    private static final String MAVEN_IMAGE = "maven:3.9-eclipse-temurin-21-alpine";
-    private static final long MEMORY_LIMIT = 512 * 1024 * 1024L; // 512 MB
-    private static final int TIMEOUT_SECONDS = 300;
+    private static final Logger log = LoggerFactory.getLogger(DockerSandbox.class);
+    /**
+     * Everything one run may take: waiting for the image and a container, then every exec. Kept
+     * inside the backend's {@code app.grader.deadline}, so the backend never gives up on a run
+     * that is still going.
+     */
+    private static final Duration RUN_BUDGET = Duration.ofSeconds(300);
 
-    public record ExecutionResult(int exitCode, String output) {}
+    public record ExecutionResult(int exitCode) {}
 
-    public ExecutionResult runMavenTests(Path workDir) throws Exception {
-        DefaultDockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder()
-                .withDockerHost("unix:///var/run/docker.sock")
-                .build();
+    private static final Duration IMAGE_WAIT = Duration.ofSeconds(60);
+    private static final Duration TOOLCHAIN_RETRY = Duration.ofMinutes(5);
 
-        ZerodepDockerHttpClient httpClient = new ZerodepDockerHttpClient.Builder()
-                .dockerHost(URI.create("unix:///var/run/docker.sock"))
-                .maxConnections(10)
-                .connectionTimeout(Duration.ofSeconds(30))
-                .responseTimeout(Duration.ofSeconds(TIMEOUT_SECONDS))
-                .build();
+    /** Resolved once into the shared Maven cache; its classpaths are valid in every pooled container. */
+    private static final String TOOLCHAIN_POM = """
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.javachallenge.grader</groupId>
+              <artifactId>fast-toolchain</artifactId>
+              <version>1</version>
+              <packaging>pom</packaging>
+              <dependencies>
+                <dependency>
+                  <groupId>org.junit.platform</groupId>
+                  <artifactId>junit-platform-console-standalone</artifactId>
+                  <version>%s</version>
+                </dependency>
+                <dependency>
+                  <groupId>com.puppycrawl.tools</groupId>
+                  <artifactId>checkstyle</artifactId>
+                  <version>%s</version>
+                </dependency>
+              </dependencies>
+            </project>
+            """;
+    private static final String BUILD_CLASSPATH =
+            "org.apache.maven.plugins:maven-dependency-plugin:3.6.1:build-classpath";
 
-        try (DockerClient docker = DockerClientImpl.getInstance(config, httpClient)) {
-            // Pull image if not present (silent)
-            try {
-                docker.pullImageCmd(MAVEN_IMAGE).start().awaitCompletion(60, TimeUnit.SECONDS);
-            } catch (Exception ignored) { /* image likely already present */ }
-
-            // Create container with resource limits + shared Maven cache
-            HostConfig hostConfig = HostConfig.newHostConfig()
-                    .withMemory(MEMORY_LIMIT)
-                    .withCpuCount(1L)
-                    .withBinds(
-                            new Bind(workDir.toAbsolutePath().toString(),
-                                    new Volume("/workspace"), AccessMode.rw),
-                            new Bind("javachallenge-m2-cache",
-                                    new Volume("/root/.m2/repository"), AccessMode.rw)
-                    );
-
-            CreateContainerResponse container = docker.createContainerCmd(MAVEN_IMAGE)
-                    .withCmd("mvn", "-B", "--no-transfer-progress", "test", "checkstyle:check",
-                             "-f", "/workspace/pom.xml")
-                    .withWorkingDir("/workspace")
-                    .withHostConfig(hostConfig)
-                    .exec();
-
-            String containerId = container.getId();
+    private static final String COMPILE_SCRIPT = """
+            set -e
+            mkdir -p target/classes target/test-classes target/surefire-reports
+            [ -d src/main/resources ] && cp -R src/main/resources/. target/classes/
+            find src/main/java -name '*.java' > target/main-sources
+            javac -encoding UTF-8 --release 21 -d target/classes @target/main-sources
+            [ -d src/test/java ] || exit 0
+            [ -d src/test/resources ] && cp -R src/test/resources/. target/test-classes/
+            find src/test/java -name '*.java' > target/test-sources
+            javac -encoding UTF-8 --release 21 -d target/test-classes -cp "target/classes:$JUNIT_JAR" @target/test-sources
+            """;
+    private static final String TEST_SCRIPT = """
+            java -jar "$JUNIT_JAR" execute --disable-banner --disable-ansi-colors --details=tree \
+              --include-engine=junit-jupiter \
+              --class-path target/test-classes:target/classes --scan-class-path target/test-classes \
+              --reports-dir target/surefire-reports
+            """;
+    // The CLI exits with its error count, which wraps at 256 and looks like a signal from 128 on
+    private static final String CHECKSTYLE_SCRIPT = """
+            [ -f checkstyle.xml ] || exit 0
+            java -cp "$CHECKSTYLE_CP" com.puppycrawl.tools.checkstyle.Main \
+              -c checkstyle.xml -f xml -o target/checkstyle-result.xml src/main/java || exit 1
+            """;
+
+    /** Jars the fast mode runs with, as paths inside a pooled container. */
+    private record Toolchain(String junitJar, String checkstyleClasspath) {}
+
+    private final DockerClient docker;
+    private final SandboxImage image;
+    private final ContainerPool pool;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final Path workBaseDir;
+    private final String junitPlatformVersion;
+    private final String checkstyleVersion;
+    private final AtomicBoolean toolchainResolving = new AtomicBoolean();
+    private volatile Toolchain toolchain;
+    private volatile Instant toolchainRetryAt = Instant.MIN;
+
+    public DockerSandbox(DockerClient docker, SandboxImage image, ContainerPool pool,
+                         MeterRegistry meterRegistry, Tracer tracer,
+                         @Value("${grader.work-dir:/tmp}") String workDir,
+                         @Value("${grader.fast.junit-platform-version:1.10.0}") String junitPlatformVersion,
+                         @Value("${grader.fast.checkstyle-version:9.3}") String checkstyleVersion) {
+        this.docker = docker;
+        this.image = image;
+        this.pool = pool;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.workBaseDir = Path.of(workDir);
+        this.junitPlatformVersion = junitPlatformVersion;
+        this.checkstyleVersion = checkstyleVersion;
+    }
+
+    /**
+     * Runs the build in a pooled container, forwarding its output to {@code output} as it is produced.
+     * The project is moved into the container's workspace for the run and moved back afterwards.
+     */
+    public ExecutionResult runMavenTests(Path workDir, Consumer<String> output) throws Exception {
+        return inPooledContainer(workDir, (containerId, deadline) -> step("run", () -> {
+            try (MavenPhaseTracer mojos = new MavenPhaseTracer(tracer, tracer.currentSpan(), output)) {
+                return new ExecutionResult(exec(containerId, deadline, List.of(), mojos, "mvn", "-B", "--no-transfer-progress",
+                        "test", "checkstyle:check", "-f", "/workspace/project/pom.xml"));
+            }
+        }));
+    }
+
+    /**
+     * Builds the way {@link #runMavenTests} does, without Maven: javac, then the JUnit Platform
+     * console launcher, then the Checkstyle CLI, writing the same Surefire and Checkstyle reports.
+     * Only for projects whose sole dependency is JUnit, once {@link #fastModeAvailable} returned true.
+     */
+    public ExecutionResult runFast(Path workDir, Consumer<String> output) throws Exception {
+        Toolchain tools = toolchain;
+        if (tools == null) throw new IllegalStateException("Fast toolchain is not resolved");
+        List<String> env = List.of("JUNIT_JAR=" + tools.junitJar(), "CHECKSTYLE_CP=" + tools.checkstyleClasspath());
+        return inPooledContainer(workDir, (containerId, deadline) -> {
+            int exitCode = step("compile", () -> exec(containerId, deadline, env, output, "sh", "-c", COMPILE_SCRIPT));
+            if (exitCode == 0) {
+                exitCode = step("test", () -> exec(containerId, deadline, env, output, "sh", "-c", TEST_SCRIPT));
+            }
+            // Like checkstyle:check after test, style is only checked once the tests pass
+            if (exitCode == 0) {
+                exitCode = step("checkstyle", () -> exec(containerId, deadline, env, output, "sh", "-c", CHECKSTYLE_SCRIPT));
+            }
+            // Report failures as Maven would (1), but keep signal exits so the container is recycled
+            return new ExecutionResult(exitCode == 0 || exitCode >= 128 ? exitCode : 1);
+        });
+    }
+
+    /**
+     * Whether the fast-mode tools are resolved. The first call starts resolving them in the
+     * background and grading uses Maven meanwhile: resolving is a sandbox run of its own, and
+     * doing it inline would push that grading past its deadline.
+     */
+    public boolean fastModeAvailable() {
+        if (toolchain != null) return true;
+        if (Instant.now().isAfter(toolchainRetryAt) && toolchainResolving.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("fast-toolchain").start(() -> {
+                try {
+                    toolchain = step("toolchain", this::resolveToolchain);
+                } catch (Exception e) {
+                    log.warn("Fast grading unavailable, using Maven: {}", e.getMessage());
+                    toolchainRetryAt = Instant.now().plus(TOOLCHAIN_RETRY);
+                } finally {
+                    toolchainResolving.set(false);
+                }
+            });
+        }
+        return false;
+    }
+
+    /** Has Maven write the launcher's and Checkstyle's classpaths; the jars land in the shared cache. */
+    private Toolchain resolveToolchain() throws Exception {
+        Path dir = Files.createTempDirectory(workBaseDir, "toolchain-");
+        try {
+            Files.writeString(dir.resolve("pom.xml"), TOOLCHAIN_POM.formatted(junitPlatformVersion, checkstyleVersion));
+            StringBuilder mavenOutput = new StringBuilder();
+            ExecutionResult result = inPooledContainer(dir, (containerId, deadline) -> {
+                int exitCode = exec(containerId, deadline, List.of(), mavenOutput::append, "mvn", "-B", "--no-transfer-progress",
+                        BUILD_CLASSPATH, "-DincludeGroupIds=org.junit.platform", "-Dmdep.outputFile=junit.cp");
+                if (exitCode == 0) {
+                    exitCode = exec(containerId, deadline, List.of(), mavenOutput::append, "mvn", "-B", "--no-transfer-progress",
+                            BUILD_CLASSPATH, "-DexcludeGroupIds=org.junit.platform", "-Dmdep.outputFile=checkstyle.cp");
+                }
+                return new ExecutionResult(exitCode);
+            });
+            if (result.exitCode() != 0) {
+                throw new IllegalStateException("Resolving the fast toolchain failed (exit " + result.exitCode() + "): "
+                        + mavenOutput.substring(Math.max(0, mavenOutput.length() - 2000)));
+            }
+            Toolchain tools = new Toolchain(Files.readString(dir.resolve("junit.cp")).strip(),
+                    Files.readString(dir.resolve("checkstyle.cp")).strip());
+            log.info("Fast grading toolchain ready: JUnit Platform {}, Checkstyle {}", junitPlatformVersion, checkstyleVersion);
+            return tools;
+        } finally {
+            try (Stream<Path> walk = Files.walk(dir)) {
+                for (Path p : walk.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ContainerRun {
+        ExecutionResult run(String containerId, Instant deadline) throws Exception;
+    }
+
+    /**
+     * Leases a container, moves {@code workDir} into its workspace as {@code /workspace/project}
+     * and runs there, all within {@link #RUN_BUDGET}.
+     */
+    private ExecutionResult inPooledContainer(Path workDir, ContainerRun run) throws Exception {
+        Instant deadline = Instant.now().plus(RUN_BUDGET);
+        image.awaitReady(IMAGE_WAIT);
+
+        ContainerPool.PooledContainer container = step("lease", () -> pool.lease(remaining(deadline)));
+        Path project = container.workspace().resolve("project");
+        boolean clean = false;
+        try {
+            Files.move(workDir, project);
             try {
-                docker.startContainerCmd(containerId).exec();
-
-                // Wait with timeout
-                Integer exitCode = docker.waitContainerCmd(containerId)
-                        .start()
-                        .awaitStatusCode(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-
-                // Collect logs
-                ByteArrayOutputStream logStream = new ByteArrayOutputStream();
-                docker.logContainerCmd(containerId)
-                        .withStdOut(true)
-                        .withStdErr(true)
-                        .withFollowStream(false)
-                        .exec(new com.github.dockerjava.api.async.ResultCallbackTemplate<>() {
-                            @Override
-                            public void onNext(Frame frame) {
-                                try { logStream.write(frame.getPayload()); }
-                                catch (Exception ignored) {}
-                            }
-                        }).awaitCompletion();
-
-                return new ExecutionResult(exitCode != null ? exitCode : 1,
-                        logStream.toString(StandardCharsets.UTF_8));
+                ExecutionResult result = run.run(container.id(), deadline);
+                // 0 and 1 are a build's own pass/fail; anything else (OOM kill, signal) may have left debris
+                clean = result.exitCode() == 0 || result.exitCode() == 1;
+                return result;
             } finally {
-                try { docker.removeContainerCmd(containerId).withForce(true).exec(); }
-                catch (Exception ignored) {}
+                Files.move(project, workDir);
             }
+        } finally {
+            pool.release(container, clean);
         }
     }
+
+    /** Runs {@code cmd} in {@code /workspace/project} and returns its exit code. */
+    private int exec(String containerId, Instant deadline, List<String> env, Consumer<String> output, String... cmd)
+            throws Exception {
+        String execId = docker.execCreateCmd(containerId)
+                .withCmd(cmd)
+                .withEnv(env)
+                .withWorkingDir("/workspace/project")
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec()
+                .getId();
+
+        // Frames split the output at arbitrary bytes, so each stream keeps its own decoder
+        Map<StreamType, StreamDecoder> decoders = new EnumMap<>(StreamType.class);
+        var run = docker.execStartCmd(execId)
+                .exec(new ResultCallbackTemplate<>() {
+                    @Override
+                    public void onNext(Frame frame) {
+                        String text = decoders.computeIfAbsent(frame.getStreamType(), type -> new StreamDecoder())
+                                .decode(frame.getPayload());
+                        if (!text.isEmpty()) output.accept(text);
+                    }
+                });
+        if (!run.awaitCompletion(remaining(deadline).toMillis(), TimeUnit.MILLISECONDS)) {
+            run.close();
+            // The build is still running in the container; the pool discards it on release
+            throw new IllegalStateException("Build timed out after " + RUN_BUDGET.toSeconds() + "s");
+        }
+        // Before anything reads what the exec wrote: a process it left behind could still change it
+        pool.killStrays(containerId);
+        for (StreamDecoder decoder : decoders.values()) {
+            String rest = decoder.finish();
+            if (!rest.isEmpty()) output.accept(rest);
+        }
+        Long exitCode = docker.inspectExecCmd(execId).exec().getExitCodeLong();
+        return exitCode != null ? exitCode.intValue() : 1;
+    }
+
+    private static Duration remaining(Instant deadline) {
+        Duration left = Duration.between(Instant.now(), deadline);
+        return left.isNegative() ? Duration.ZERO : left;
+    }
+
+    /** Decodes one output stream as UTF-8, carrying a character split across frames over to the next. */
+    private static final class StreamDecoder {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+
+        String decode(byte[] bytes) {
+            ByteBuffer in = ByteBuffer.allocate(pending.remaining() + bytes.length).put(pending).put(bytes).flip();
+            // UTF-8 never decodes to more chars than it has bytes
+            CharBuffer out = CharBuffer.allocate(in.remaining());
+            decoder.decode(in, out, false);
+            pending = in;
+            return out.flip().toString();
+        }
+
+        /** Whatever is left at the end of the stream, a truncated character becoming U+FFFD. */
+        String finish() {
+            CharBuffer out = CharBuffer.allocate(pending.remaining() + 1);
+            decoder.decode(pending, out, true);
+            decoder.flush(out);
+            return out.flip().toString();
+        }
+    }
+
+    /** Times a sandbox step and traces it as a child of the current span. */
+    private <T> T step(String step, Callable<T> action) throws Exception {
+        Span span = tracer.nextSpan().name("sandbox." + step).start();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return action.call();
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            sample.stop(stepTimer(step));
+            span.end();
+        }
+    }
+
+    private Timer stepTimer(String step) {
+        return Timer.builder("grader.sandbox").tag("step", step).register(meterRegistry);
+    }
 }
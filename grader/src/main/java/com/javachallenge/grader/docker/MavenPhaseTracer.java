@@ -0,0 +1,78 @@
+package com.javachallenge.grader.docker;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Passes container output through and turns Maven's mojo banners
+ * ({@code --- surefire:3.2.5:test (default-test) @ demo ---}) into child spans of the run, each
+ * ending where the next banner starts. Output arrives on docker-java's callback thread, so the
+ * parent span is passed in rather than taken from the current scope.
+ */
+class MavenPhaseTracer implements Consumer<String>, AutoCloseable {
+
+    private static final Pattern MOJO =
+            Pattern.compile("--- ([\\w.-]+):([\\w.-]+):([\\w.-]+) \\(([^)]*)\\) @ ([\\w.-]+) ---");
+
+    private final Tracer tracer;
+    private final Span parent;
+    private final Consumer<String> delegate;
+    private final StringBuilder partial = new StringBuilder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Span current;
+
+    MavenPhaseTracer(Tracer tracer, Span parent, Consumer<String> delegate) {
+        this.tracer = tracer;
+        this.parent = parent;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void accept(String text) {
+        delegate.accept(text);
+        lock.lock();
+        try {
+            // Frames split lines arbitrarily; only complete lines can hold a banner
+            partial.append(text);
+            int newline;
+            while ((newline = partial.indexOf("\n")) >= 0) {
+                line(partial.substring(0, newline));
+                partial.delete(0, newline + 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void line(String line) {
+        Matcher m = MOJO.matcher(line);
+        if (!m.find()) return;
+        endCurrent();
+        current = tracer.nextSpan(parent)
+                .name("mvn " + m.group(1) + ":" + m.group(3))
+                .tag("maven.plugin.version", m.group(2))
+                .tag("maven.execution", m.group(4))
+                .tag("maven.project", m.group(5))
+                .start();
+    }
+
+    private void endCurrent() {
+        if (current != null) current.end();
+        current = null;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            endCurrent();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
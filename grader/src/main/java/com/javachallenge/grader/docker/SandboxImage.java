@@ -0,0 +1,143 @@
+package com.javachallenge.grader.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectImageResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The sandbox image, pulled and verified once at startup instead of before every run. The
+ * grader reports itself not ready until the image is in place, and refreshes it on a schedule
+ * so a moved tag is picked up without touching the request path.
+ */
+@Component
+public class SandboxImage {
+
+    private static final Logger log = LoggerFactory.getLogger(SandboxImage.class);
+    private static final Duration RETRY_BACKOFF = Duration.ofSeconds(10);
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(5);
+
+    private final DockerClient docker;
+    private final String image;
+    private final Duration pullTimeout;
+    private final ApplicationEventPublisher events;
+    private final Timer pullTimer;
+    private final CountDownLatch ready = new CountDownLatch(1);
+
+    public SandboxImage(DockerClient docker, ApplicationEventPublisher events, MeterRegistry meterRegistry,
+                        @Value("${grader.docker.image:maven:3.9-eclipse-temurin-21-alpine}") String image,
+                        @Value("${grader.docker.pull-timeout:PT10M}") Duration pullTimeout) {
+        this.docker = docker;
+        this.events = events;
+        this.image = image;
+        this.pullTimeout = pullTimeout;
+        this.pullTimer = Timer.builder("grader.image.pull").register(meterRegistry);
+        Gauge.builder("grader.image.ready", ready, latch -> latch.getCount() == 0 ? 1 : 0).register(meterRegistry);
+    }
+
+    public String name() {
+        return image;
+    }
+
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /** Blocks a run that arrives before warm-up finished, e.g. where readiness is not enforced. */
+    public void awaitReady(Duration timeout) throws InterruptedException {
+        if (!ready.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Sandbox image " + image + " is not available yet");
+        }
+    }
+
+    /** Boot declares the grader ready once it has started; hold that back until the image is in place. */
+    @EventListener
+    public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && ready.getCount() > 0) {
+            AvailabilityChangeEvent.publish(events, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread.ofVirtual().name("sandbox-image-warmup").start(() -> {
+            Duration backoff = RETRY_BACKOFF;
+            while (true) {
+                try {
+                    pull();
+                    markReady();
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    // A rate-limited or offline registry must not stop grading with an image we already have
+                    if (presentLocally()) {
+                        log.warn("Pulling sandbox image {} failed ({}), using the local copy", image, e.getMessage());
+                        markReady();
+                        return;
+                    }
+                    log.warn("Sandbox image {} not available yet ({}), retrying in {}", image, e.getMessage(), backoff);
+                    try {
+                        Thread.sleep(backoff);
+                        backoff = backoff.multipliedBy(2).compareTo(MAX_RETRY_BACKOFF) > 0
+                                ? MAX_RETRY_BACKOFF : backoff.multipliedBy(2);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${grader.docker.image-refresh-interval:PT6H}",
+            initialDelayString = "${grader.docker.image-refresh-interval:PT6H}")
+    public void refresh() {
+        try {
+            pull();
+        } catch (Exception e) {
+            // Keep grading with the image we have
+            log.warn("Refreshing sandbox image {} failed: {}", image, e.getMessage());
+        }
+    }
+
+    private void markReady() {
+        ready.countDown();
+        AvailabilityChangeEvent.publish(events, this, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    private boolean presentLocally() {
+        try {
+            docker.inspectImageCmd(image).exec();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void pull() throws Exception {
+        pullTimer.recordCallable(() -> {
+            if (!docker.pullImageCmd(image).start().awaitCompletion(pullTimeout.toSeconds(), TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Pull did not finish within " + pullTimeout);
+            }
+            InspectImageResponse inspected = docker.inspectImageCmd(image).exec();
+            log.info("Sandbox image {} ready ({})", image, inspected.getId());
+            return null;
+        });
+    }
+}
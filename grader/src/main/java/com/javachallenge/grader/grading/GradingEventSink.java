@@ -0,0 +1,9 @@
+package com.javachallenge.grader.grading;
+
+import com.javachallenge.grader.model.GradingEvent;
+
+/** Receives grading progress. Implementations must tolerate calls from the Docker log thread. */
+@FunctionalInterface
+public interface GradingEventSink {
+    void emit(GradingEvent event);
+}
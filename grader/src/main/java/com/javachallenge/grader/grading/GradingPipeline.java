@@ -0,0 +1,294 @@
+package com.javachallenge.grader.grading;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javachallenge.grader.docker.DockerSandbox;
+import com.javachallenge.grader.model.*;
+import com.javachallenge.grader.parser.CheckstyleParser;
+import com.javachallenge.grader.parser.SurefireParser;
+import com.javachallenge.grader.score.ScoreCalculator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Grades one extracted submission and reports each phase, the container output and every
+ * test result to a {@link GradingEventSink} as it happens.
+ */
+@Component
+public class GradingPipeline {
+
+    private static final int LOG_BATCH_CHARS = 8 * 1024;
+    private static final long LOG_BATCH_MILLIS = 250;
+    private static final String FAST_MODE = "fast";
+
+    private final DockerSandbox sandbox;
+    private final ZipInspector zipInspector;
+    private final SurefireParser surefireParser;
+    private final CheckstyleParser checkstyleParser;
+    private final ScoreCalculator scoreCalculator;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final TaskScheduler taskScheduler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public GradingPipeline(DockerSandbox sandbox, ZipInspector zipInspector, SurefireParser surefireParser,
+                           CheckstyleParser checkstyleParser, ScoreCalculator scoreCalculator,
+                           ObjectMapper objectMapper, MeterRegistry meterRegistry, Tracer tracer,
+                           TaskScheduler taskScheduler) {
+        this.sandbox = sandbox;
+        this.zipInspector = zipInspector;
+        this.surefireParser = surefireParser;
+        this.checkstyleParser = checkstyleParser;
+        this.scoreCalculator = scoreCalculator;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.taskScheduler = taskScheduler;
+        Gauge.builder("grader.gradings.in_flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Runs all phases and emits the final {@code result} event. The returned result carries no
+     * log; the output has already been delivered through {@code log} events.
+     */
+    public GraderResult grade(Path zipFile, Path workDir, String hiddenTests, String mode, GradingEventSink sink) {
+        GraderResult result;
+        String outcome;
+        inFlight.incrementAndGet();
+        Span span = tracer.nextSpan().name("grader.grade").tag("mode", mode).start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            result = run(zipFile, workDir, hiddenTests, mode, sink);
+            outcome = result.passed() ? "passed" : "failed";
+        } catch (ZipRejectedException e) {
+            // The submission itself is at fault: a verdict like any failed build
+            sink.emit(GradingEvent.log("Submission rejected: " + e.getMessage() + "\n"));
+            result = new GraderResult(false, 0, "[]", "[]", "[]", null, false);
+            outcome = "rejected";
+        } catch (Exception e) {
+            span.error(e);
+            sink.emit(GradingEvent.log("Grader error: " + e.getMessage() + "\n"));
+            result = new GraderResult(false, 0, "[]", "[]", "[]", null, true);
+            outcome = "error";
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        span.tag("outcome", outcome).tag("score", String.valueOf(result.score())).end();
+        meterRegistry.counter("grader.gradings", "outcome", outcome, "mode", mode).increment();
+        sink.emit(GradingEvent.result(result));
+        return result;
+    }
+
+    private GraderResult run(Path zipFile, Path workDir, String hiddenTests, String mode, GradingEventSink sink)
+            throws Exception {
+        Path extractDir = workDir.resolve("project");
+        phase(sink, "inspect", "Checking submission archive", () -> {
+            zipInspector.inspect(zipFile);
+            return null;
+        });
+
+        Path projectRoot = phase(sink, "extract", "Extracting submission", () -> {
+            extractZip(zipFile, extractDir);
+            // Handle nested directory: if pom.xml is inside a single subdirectory, use that
+            return resolveProjectRoot(extractDir);
+        });
+
+        phase(sink, "inject", "Injecting hidden tests", () -> {
+            injectHiddenTests(projectRoot, hiddenTests);
+            return null;
+        });
+
+        boolean fast = FAST_MODE.equals(mode) && fastEligible(projectRoot) && sandbox.fastModeAvailable();
+        LogBatcher output = new LogBatcher(sink, LOG_BATCH_CHARS, LOG_BATCH_MILLIS);
+        String label = fast ? "Compiling and testing in sandbox" : "Running Maven in sandbox";
+        DockerSandbox.ExecutionResult execution = phase(sink, "sandbox", label, () -> {
+            ScheduledFuture<?> ticker = taskScheduler.scheduleAtFixedRate(output::flushIfDue,
+                    Duration.ofMillis(LOG_BATCH_MILLIS));
+            try {
+                return fast ? sandbox.runFast(projectRoot, output) : sandbox.runMavenTests(projectRoot, output);
+            } finally {
+                ticker.cancel(false);
+                output.flush();
+            }
+        });
+
+        return phase(sink, "report", "Parsing test results", () -> {
+            List<TestResult> allTests = parseTimer("surefire").recordCallable(
+                    () -> surefireParser.parse(projectRoot.resolve("target/surefire-reports")));
+            List<CheckstyleViolation> violations = parseTimer("checkstyle").recordCallable(
+                    () -> checkstyleParser.parse(projectRoot.resolve("target/checkstyle-result.xml")));
+
+            // Split visible vs hidden tests by name convention
+            List<TestResult> visibleTests = allTests.stream()
+                    .filter(t -> !t.name().contains("Hidden")).toList();
+            List<TestResult> hiddenTestResults = allTests.stream()
+                    .filter(t -> t.name().contains("Hidden")).toList();
+            visibleTests.forEach(t -> sink.emit(GradingEvent.test(t, false)));
+            hiddenTestResults.forEach(t -> sink.emit(GradingEvent.test(t, true)));
+
+            int score = scoreCalculator.calculate(visibleTests, hiddenTestResults, violations,
+                    hiddenTests != null && !hiddenTests.equals("[]"));
+            boolean passed = score >= 60 && execution.exitCode() == 0;
+
+            return new GraderResult(
+                    passed,
+                    score,
+                    objectMapper.writeValueAsString(visibleTests),
+                    objectMapper.writeValueAsString(hiddenTestResults),
+                    objectMapper.writeValueAsString(violations),
+                    null,
+                    false
+            );
+        });
+    }
+
+    private <T> T phase(GradingEventSink sink, String phase, String label, Callable<T> action) throws Exception {
+        sink.emit(GradingEvent.phaseStarted(phase, label));
+        long start = System.nanoTime();
+        Span span = tracer.nextSpan().name("grader." + phase).start();
+        T result;
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            result = action.call();
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("grader.phase").tag("phase", phase).register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        sink.emit(GradingEvent.phaseFinished(phase, label, elapsed / 1_000_000));
+        return result;
+    }
+
+    private Timer parseTimer(String report) {
+        return Timer.builder("grader.parse").tag("report", report).register(meterRegistry);
+    }
+
+    /**
+     * Extracts exactly the entries {@link ZipInspector} vetted, from the central directory, and
+     * stops any entry that inflates past its recorded size. Junk entries are left out.
+     */
+    private void extractZip(Path zipFile, Path dest) throws Exception {
+        Files.createDirectories(dest);
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            List<? extends ZipEntry> entries = Collections.list(zip.entries());
+            String root = zipInspector.commonRoot(entries.stream().map(ZipEntry::getName).toList());
+            for (ZipEntry entry : entries) {
+                Path target = dest.resolve(entry.getName()).normalize();
+                if (!target.startsWith(dest)) throw new SecurityException("Zip path traversal!");
+                // The backend's content hash ignores these too; a cached result must match a fresh run
+                if (ZipInspector.isJunk(entry.getName(), root)) continue;
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try (InputStream in = zip.getInputStream(entry);
+                     OutputStream out = Files.newOutputStream(target)) {
+                    long copied = in.transferTo(new BoundedOutputStream(out, entry.getSize()));
+                    if (copied != entry.getSize()) throw new ZipRejectedException("Zip entry size mismatch: " + entry.getName());
+                }
+            }
+        }
+    }
+
+    /** Fails the write that would exceed the size the central directory promised. */
+    private static final class BoundedOutputStream extends FilterOutputStream {
+        private long remaining;
+
+        BoundedOutputStream(OutputStream out, long limit) {
+            super(out);
+            this.remaining = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            remaining -= len;
+            if (remaining < 0) throw new ZipRejectedException("Zip entry larger than recorded");
+            out.write(b, off, len);
+        }
+    }
+
+    private void injectHiddenTests(Path workDir, String hiddenTestsJson) throws Exception {
+        // Hidden tests JSON is an array of {className, code} objects
+        // Inject each into the test directory
+        if (hiddenTestsJson == null || hiddenTestsJson.equals("[]")) return;
+        var tests = objectMapper.readTree(hiddenTestsJson);
+        Path testDir = workDir.resolve("src/test/java/com/challenge");
+        Files.createDirectories(testDir);
+        for (var test : tests) {
+            String className = test.get("className").asText();
+            String code = test.get("code").asText();
+            Files.writeString(testDir.resolve(className + ".java"), code);
+        }
+    }
+
+    /**
+     * Fast mode builds without reading the pom, so it only applies to a single-module project
+     * whose dependencies are all JUnit; anything else goes through Maven.
+     */
+    private boolean fastEligible(Path projectRoot) {
+        Path pom = projectRoot.resolve("pom.xml");
+        if (!Files.isDirectory(projectRoot.resolve("src/main/java")) || !Files.exists(pom)) return false;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Element project = factory.newDocumentBuilder().parse(pom.toFile()).getDocumentElement();
+            if (project.getElementsByTagName("parent").getLength() > 0
+                    || project.getElementsByTagName("modules").getLength() > 0) return false;
+            NodeList groupIds = project.getElementsByTagName("groupId");
+            for (int i = 0; i < groupIds.getLength(); i++) {
+                Node parent = groupIds.item(i).getParentNode();
+                if (parent.getNodeName().equals("dependency")
+                        && !groupIds.item(i).getTextContent().strip().startsWith("org.junit")) return false;
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** If pom.xml is inside a single nested directory, return that directory. */
+    private Path resolveProjectRoot(Path extractDir) throws Exception {
+        if (Files.exists(extractDir.resolve("pom.xml"))) return extractDir;
+        try (var entries = Files.list(extractDir)) {
+            List<Path> children = entries.toList();
+            if (children.size() == 1 && Files.isDirectory(children.get(0))
+                    && Files.exists(children.get(0).resolve("pom.xml"))) {
+                return children.get(0);
+            }
+        }
+        return extractDir;
+    }
+}
@@ -0,0 +1,48 @@
+package com.javachallenge.grader.grading;
+
+import com.javachallenge.grader.model.GraderResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks gradings by the caller's idempotency key (the submission id). A retried request for a
+ * key that is still running attaches to that run, and one for a key that finished recently gets
+ * the same result, so the backend can retry freely without starting a second sandbox.
+ */
+@Component
+public class GradingRuns {
+
+    private record Run(CompletableFuture<GraderResult> result, long startedAt) {}
+
+    private final ConcurrentHashMap<String, Run> runs = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+    private final int maxEntries;
+
+    public GradingRuns(@Value("${grader.idempotency.retention:PT15M}") Duration retention,
+                       @Value("${grader.idempotency.max-entries:1000}") int maxEntries) {
+        this.retentionMillis = retention.toMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Registers a new run for {@code key}. Returns {@code null} if the caller owns the run and must
+     * complete it, or the existing run's result otherwise.
+     */
+    public CompletableFuture<GraderResult> begin(String key, CompletableFuture<GraderResult> result) {
+        evictExpired();
+        Run existing = runs.putIfAbsent(key, new Run(result, System.currentTimeMillis()));
+        return existing != null ? existing.result() : null;
+    }
+
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        runs.values().removeIf(run -> run.result().isDone() && run.startedAt() < cutoff);
+        if (runs.size() > maxEntries) {
+            runs.values().removeIf(run -> run.result().isDone());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.javachallenge.grader.grading;
+
+import com.javachallenge.grader.model.GradingEvent;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces container output into log events of up to {@code maxChars} characters or
+ * {@code maxDelayMillis} of output, so the stream carries a handful of events per second
+ * instead of one per Maven line. {@link #flushIfDue} is called on a timer, so output that is
+ * followed by a quiet spell (a slow test, dependency resolution) is not held back.
+ */
+class LogBatcher implements Consumer<String> {
+
+    private final GradingEventSink sink;
+    private final int maxChars;
+    private final long maxDelayMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder buffer = new StringBuilder();
+    private long firstBufferedAt;
+
+    LogBatcher(GradingEventSink sink, int maxChars, long maxDelayMillis) {
+        this.sink = sink;
+        this.maxChars = maxChars;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @Override
+    public void accept(String text) {
+        lock.lock();
+        try {
+            if (buffer.isEmpty()) firstBufferedAt = System.currentTimeMillis();
+            buffer.append(text);
+            if (buffer.length() >= maxChars || System.currentTimeMillis() - firstBufferedAt >= maxDelayMillis) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Emits the buffer if its oldest output has waited {@code maxDelayMillis}. */
+    void flushIfDue() {
+        lock.lock();
+        try {
+            if (!buffer.isEmpty() && System.currentTimeMillis() - firstBufferedAt >= maxDelayMillis) flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void flush() {
+        lock.lock();
+        try {
+            if (buffer.isEmpty()) return;
+            sink.emit(GradingEvent.log(buffer.toString()));
+            buffer.setLength(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.javachallenge.grader.grading;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Vets a submission zip from its central directory alone, without inflating anything: entry
+ * count, total uncompressed size, per-entry compression ratio and which paths may appear.
+ * Paths are matched after stripping a single wrapping folder, the same way projects are found,
+ * unless that folder is an allowed path itself, as {@code src/} is in a zip of just the sources.
+ */
+@Component
+public class ZipInspector {
+
+    /** Entries smaller than this may compress arbitrarily well (e.g. blank files) without being suspect. */
+    private static final long RATIO_MIN_BYTES = 64 * 1024;
+
+    /** Limits that also apply while a zip is read as a stream, where sizes are only known as they arrive. */
+    public record Limits(long maxUncompressedBytes, int maxEntries) {}
+
+    private final Limits limits;
+    private final int maxRatio;
+    private final List<String> allowedPaths;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    public ZipInspector(@Value("${grader.zip.max-uncompressed-size:50MB}") DataSize maxUncompressedSize,
+                        @Value("${grader.zip.max-entries:500}") int maxEntries,
+                        @Value("${grader.zip.max-ratio:100}") int maxRatio,
+                        @Value("${grader.zip.allowed-paths:pom.xml,src/**}") List<String> allowedPaths) {
+        this.limits = new Limits(maxUncompressedSize.toBytes(), maxEntries);
+        this.maxRatio = maxRatio;
+        this.allowedPaths = List.copyOf(allowedPaths);
+    }
+
+    public Limits limits() {
+        return limits;
+    }
+
+    /** @throws ZipRejectedException describing the first limit the zip breaks */
+    public void inspect(Path zip) throws IOException {
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            // The entry count comes from the end record, before any entry is looked at
+            if (file.size() > limits.maxEntries()) {
+                throw new ZipRejectedException("Zip has " + file.size() + " entries, the limit is " + limits.maxEntries());
+            }
+            List<? extends ZipEntry> entries = Collections.list(file.entries());
+            String root = commonRoot(entries.stream().map(ZipEntry::getName).toList());
+            long total = 0;
+            for (ZipEntry entry : entries) {
+                String name = entry.getName();
+                if (name.startsWith("/") || name.contains("\\") || List.of(name.split("/")).contains("..")) {
+                    throw new ZipRejectedException("Illegal path in zip: " + name);
+                }
+                if (isJunk(name, root)) continue;
+                String path = name.substring(root.length());
+                if (!entry.isDirectory() && !isAllowed(path)) {
+                    throw new ZipRejectedException("Unexpected file in zip: " + path + " (allowed: " + allowedPaths + ")");
+                }
+                long size = entry.getSize();
+                long compressed = entry.getCompressedSize();
+                if (size < 0) throw new ZipRejectedException("Zip entry without a recorded size: " + name);
+                total += size;
+                if (total > limits.maxUncompressedBytes()) {
+                    throw new ZipRejectedException("Zip expands to more than " + limits.maxUncompressedBytes() + " bytes");
+                }
+                if (size >= RATIO_MIN_BYTES && (compressed <= 0 || size / compressed > maxRatio)) {
+                    throw new ZipRejectedException("Suspicious compression ratio for " + name);
+                }
+            }
+        } catch (ZipException e) {
+            throw new ZipRejectedException("Not a valid zip: " + e.getMessage());
+        }
+    }
+
+    private boolean isAllowed(String path) {
+        for (String pattern : allowedPaths) {
+            if (matcher.match(pattern, path)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * OS metadata anywhere, and the project's build output in {@code target/} next to its pom:
+     * skipped when vetting, hashing and extracting a zip alike, so zips that differ only in these
+     * are graded, and cached, as the same submission. {@code root} is the zip's
+     * {@link #commonRoot}; a {@code target} folder deeper down, such as a package, is kept.
+     */
+    public static boolean isJunk(String name, String root) {
+        return isMetadata(name) || name.startsWith(root + "target/");
+    }
+
+    private static boolean isMetadata(String name) {
+        return name.startsWith("__MACOSX/") || name.endsWith(".DS_Store");
+    }
+
+    /**
+     * The folder every entry sits in, with its trailing slash, or "" if there is none or it is
+     * where allowed paths start, such as {@code src/}.
+     */
+    public String commonRoot(Collection<String> names) {
+        String root = null;
+        for (String name : names) {
+            if (isMetadata(name)) continue;
+            int slash = name.indexOf('/');
+            if (slash < 0) return "";
+            String first = name.substring(0, slash + 1);
+            if (root != null && !root.equals(first)) return "";
+            root = first;
+        }
+        if (root == null) return "";
+        for (String pattern : allowedPaths) {
+            if (matcher.matchStart(pattern, root)) return "";
+        }
+        return root;
+    }
+}
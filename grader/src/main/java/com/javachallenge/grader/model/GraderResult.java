@@ -1,10 +1,15 @@
 package com.javachallenge.grader.model;
 
+/**
+ * {@code error} means the submission could not be graded (Docker unavailable, a timeout, an I/O
+ * failure); such a result says nothing about the code and must not be kept as its verdict.
+ */
 public record GraderResult(
     boolean passed,
     int score,
     String visibleTestsJson,
     String hiddenTestsJson,
     String checkstyleJson,
-    String log
+    String log,
+    boolean error
 ) {}
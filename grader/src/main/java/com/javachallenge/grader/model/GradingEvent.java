@@ -0,0 +1,40 @@
+package com.javachallenge.grader.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One line of the NDJSON grading stream. {@code type} is one of {@code phase}, {@code log},
+ * {@code test} or {@code result}; only the fields relevant to that type are set.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record GradingEvent(
+    String type,
+    String phase,
+    String label,
+    String state,
+    Long durationMs,
+    String text,
+    TestResult test,
+    Boolean hidden,
+    GraderResult result
+) {
+    public static GradingEvent phaseStarted(String phase, String label) {
+        return new GradingEvent("phase", phase, label, "started", null, null, null, null, null);
+    }
+
+    public static GradingEvent phaseFinished(String phase, String label, long durationMs) {
+        return new GradingEvent("phase", phase, label, "finished", durationMs, null, null, null, null);
+    }
+
+    public static GradingEvent log(String text) {
+        return new GradingEvent("log", null, null, null, null, text, null, null, null);
+    }
+
+    public static GradingEvent test(TestResult test, boolean hidden) {
+        return new GradingEvent("test", null, null, null, null, null, test, hidden, null);
+    }
+
+    public static GradingEvent result(GraderResult result) {
+        return new GradingEvent("result", null, null, null, null, null, null, null, result);
+    }
+}
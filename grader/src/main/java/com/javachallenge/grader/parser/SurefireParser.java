@@ -30,7 +30,10 @@ public class SurefireParser {
 
                 for (int i = 0; i < testcases.getLength(); i++) {
                     Element tc = (Element) testcases.item(i);
-                    String name = tc.getAttribute("classname") + "#" + tc.getAttribute("name");
+                    // The JUnit console launcher reports methods as "name()", Surefire as "name"
+                    String method = tc.getAttribute("name");
+                    if (method.endsWith("()")) method = method.substring(0, method.length() - 2);
+                    String name = tc.getAttribute("classname") + "#" + method;
                     double time = parseDouble(tc.getAttribute("time"));
 
                     NodeList failures = tc.getElementsByTagName("failure");
@@ -0,0 +1,126 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent-connection capacity check for the backend and grader.
+ *
+ * Opens CONNECTIONS long-running requests at once, then measures how quickly a cheap probe
+ * is still answered while they are held. With platform threads the probe queues behind
+ * Tomcat's 200 workers; with virtual threads it should not. Run it twice against the same
+ * service, started with VIRTUAL_THREADS_ENABLED=false and =true. Set MANAGEMENT_PORT to the
+ * service's own port as well, so the probe shares the connector under test instead of going to
+ * the separate management one:
+ *
+ *   java scripts/ConnectionBench.java http://localhost:8081 /internal/grade 400 --zip submission.zip \
+ *       --probe-url http://localhost:8081/actuator/health/liveness
+ *   java scripts/ConnectionBench.java http://localhost:8080 /api/submissions/{id}/stream 2000
+ *
+ * Without --zip the target is requested with GET; with it, the zip is posted as the multipart
+ * "zip" field. Point the grader run at an instance without a Docker daemon: every request then
+ * parks on the sandbox image for 60s and never reaches the container pool, so the run measures
+ * request threads rather than grader.pool.max-size.
+ *
+ * Measured that way (400 held, 20 probes, JDK 21, 1-CPU VM):
+ *
+ *   VIRTUAL_THREADS_ENABLED=false  probe p50=32 p90=30007 max=30010 ms (failures 3/20)
+ *   VIRTUAL_THREADS_ENABLED=true   probe p50=19 p90=27 max=132 ms (failures 0/20)
+ *
+ * Don't hold requests by stalling the upload instead: on JDK 21 Tomcat's blocking body read
+ * pins the carrier, and 256 stalled uploads starve virtual threads as well.
+ */
+public class ConnectionBench {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: ConnectionBench <base-url> <path> <connections> [--zip file]"
+                    + " [--probes n] [--probe-url url]");
+            System.exit(2);
+        }
+        String base = args[0];
+        String path = args[1];
+        int connections = Integer.parseInt(args[2]);
+        Path zip = null;
+        int probes = 20;
+        String probeUrl = base + "/actuator/health";
+        for (int i = 3; i < args.length - 1; i++) {
+            if (args[i].equals("--zip")) zip = Path.of(args[++i]);
+            else if (args[i].equals("--probes")) probes = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--probe-url")) probeUrl = args[++i];
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        AtomicInteger answered = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<?>> held = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            HttpRequest request = zip != null ? multipart(base + path, zip) : HttpRequest.newBuilder(URI.create(base + path))
+                    .timeout(Duration.ofMinutes(10)).GET().build();
+            held.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() < 500) answered.incrementAndGet();
+                        else failed.incrementAndGet();
+                    }));
+        }
+        // Let the server accept (and start blocking on) the held requests before probing
+        Thread.sleep(3000);
+
+        List<Long> latencies = new ArrayList<>();
+        int probeFailures = 0;
+        for (int i = 0; i < probes; i++) {
+            long t0 = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(probeUrl))
+                        .timeout(Duration.ofSeconds(30)).GET().build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) probeFailures++;
+            } catch (Exception e) {
+                probeFailures++;
+            }
+            latencies.add((System.nanoTime() - t0) / 1_000_000);
+            Thread.sleep(250);
+        }
+        Collections.sort(latencies);
+
+        System.out.printf("held connections   %d (answered %d, failed %d so far, %.1fs elapsed)%n",
+                connections, answered.get(), failed.get(), (System.nanoTime() - start) / 1e9);
+        System.out.printf("probe latency ms   p50=%d p90=%d max=%d (failures %d/%d)%n",
+                latencies.get(latencies.size() / 2), latencies.get(latencies.size() * 9 / 10),
+                latencies.get(latencies.size() - 1), probeFailures, probes);
+        held.forEach(f -> f.cancel(true));
+        System.exit(0);
+    }
+
+    private static HttpRequest multipart(String url, Path zip) {
+        String boundary = "bench-" + UUID.randomUUID();
+        byte[] file;
+        try {
+            file = Files.readAllBytes(zip);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"zip\"; filename=\"submission.zip\"\r\n"
+                + "Content-Type: application/zip\r\n\r\n").getBytes();
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes();
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMinutes(10))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, file, tail)))
+                .build();
+    }
+}